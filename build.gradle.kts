@@ -30,6 +30,8 @@
 //
 //  3) Tests und QS
 //        .\gradlew test [--rerun-tasks]
+//        .\gradlew perfTest [-DstubPort=8089] [-Dlatenz=lognormal:20ms:0.5] [-Dfehlerrate=0.01] [-Danzahl=1000]
+//              [-Ddauer=10s] [-Ddb=mysql]
 //        .\gradlew allureServe
 //              EINMALIG>>   .\gradlew downloadAllure
 //        .\gradlew jacocoTestReport
@@ -238,6 +240,14 @@ dependencies {
     //implementation("org.springframework.security:spring-security-crypto")
     implementation("org.springframework.boot:spring-boot-starter-mail")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
+    // Cache fuer die Daten aus dem Microservice "fussballverein"
+    implementation("com.github.ben-manes.caffeine:caffeine")
+    // Bulkhead und Circuit Breaker fuer die Aufrufe von "fussballverein"
+    implementation(libs.bundles.resilience4j)
+    // 2nd-Level-Cache fuer Hibernate mit JCache und Caffeine sowie Statistiken als Metriken fuer Actuator
+    implementation("org.hibernate.orm:hibernate-jcache")
+    implementation("com.github.ben-manes.caffeine:jcache")
+    implementation("org.hibernate.orm:hibernate-micrometer")
 
     implementation("org.flywaydb:flyway-core")
     // https://flywaydb.org/documentation/database/mysql#java-usage
@@ -295,6 +305,8 @@ dependencies {
     //testImplementation("org.springframework.security:spring-security-test")
     // mock() fuer record
     testImplementation("org.mockito:mockito-inline")
+    // StepVerifier mit virtueller Zeit
+    testImplementation("io.projectreactor:reactor-test")
 
     // https://github.com/tbroyer/gradle-errorprone-plugin
     errorprone(libs.errorprone)
@@ -513,7 +525,7 @@ tasks.named<BootRun>("bootRun") {
         // MySQL: Flyway generiert bei "CREATE TABLE flyway_schema_history ..." nicht "ROW_FORMAT=COMPACT"
         // Oracle: CREATE TABLESPACE ist sehr kompliziert https://docs.oracle.com/en/database/oracle/oracle-database/21/sqlrf/CREATE-TABLESPACE.html
         "postgres", null -> systemProperty("spring.flyway.tablespace", "${project.name}space")
-        "mysql" -> systemProperty("spring.datasource.url", "jdbc:mysql://localhost/${project.name}")
+        "mysql" -> systemProperty("spring.datasource.url", "jdbc:mysql://localhost/${project.name}?useCursorFetch=true")
         "oracle" -> systemProperty("spring.datasource.url", "jdbc:oracle:thin:@localhost/XEPDB1")
         "h2" -> {
             systemProperty("spring.datasource.url", "jdbc:h2:mem:testdb")
@@ -525,23 +537,8 @@ tasks.named<BootRun>("bootRun") {
     }
 }
 
-tasks.test {
-    useJUnitPlatform {
-        includeTags = setOf("integration", "unit")
-
-        // includeTags = setOf("integration")
-        // includeTags = setOf("rest")
-        // includeTags = setOf("rest_get")
-        // includeTags = setOf("rest_write")
-        // includeTags = setOf("graphql")
-        // includeTags = setOf("query")
-        // includeTags = setOf("mutation")
-
-        // includeTags = setOf("unit")
-        // includeTags = setOf("service_read")
-        // includeTags = setOf("service_write")
-    }
-
+// gemeinsame Konfiguration fuer "test" und "perfTest", z.B. fuer Benchmarks mit @SpringBootTest und DB
+fun Test.testSystemProperties() {
     systemProperty("javax.net.ssl.trustStore", "./src/main/resources/truststore.p12")
     systemProperty("javax.net.ssl.trustStorePassword", "zimmermann")
     systemProperty("junit.platform.output.capture.stdout", true)
@@ -553,19 +550,14 @@ tasks.test {
     systemProperty("server.http2.enabled", false)
     systemProperty("server.ssl.client-auth", "NONE")
     systemProperty("server.tomcat.basedir", "./build/tomcat")
-
     systemProperty("LOG_PATH", "./build/log")
-    systemProperty("APPLICATION_LOGLEVEL", "TRACE")
-    systemProperty("HIBERNATE_LOGLEVEL", "DEBUG")
-    // systemProperty("HIBERNATE_LOGLEVEL", "TRACE")
-    systemProperty("FLYWAY_LOGLEVEL", "DEBUG")
 
     when (System.getProperty("db")) {
         // Tablespace fuer flyway_schema_history nur bei PostgreSQL
         // MySQL: Flyway generiert bei "CREATE TABLE flyway_schema_history ..." nicht "ROW_FORMAT=COMPACT"
         // Oracle: CREATE TABLESPACE ist sehr kompliziert https://docs.oracle.com/en/database/oracle/oracle-database/21/sqlrf/CREATE-TABLESPACE.html
         "postgres", null -> systemProperty("spring.flyway.tablespace", "${project.name}space")
-        "mysql" -> systemProperty("spring.datasource.url", "jdbc:mysql://localhost/${project.name}")
+        "mysql" -> systemProperty("spring.datasource.url", "jdbc:mysql://localhost/${project.name}?useCursorFetch=true")
         "oracle" -> systemProperty("spring.datasource.url", "jdbc:oracle:thin:@localhost/XEPDB1")
         "h2" -> {
             systemProperty("spring.datasource.url", "jdbc:h2:mem:testdb")
@@ -577,6 +569,30 @@ tasks.test {
     }
 
     jvmArgs("--enable-preview")
+}
+
+tasks.test {
+    useJUnitPlatform {
+        includeTags = setOf("integration", "unit")
+
+        // includeTags = setOf("integration")
+        // includeTags = setOf("rest")
+        // includeTags = setOf("rest_get")
+        // includeTags = setOf("rest_write")
+        // includeTags = setOf("graphql")
+        // includeTags = setOf("query")
+        // includeTags = setOf("mutation")
+
+        // includeTags = setOf("unit")
+        // includeTags = setOf("service_read")
+        // includeTags = setOf("service_write")
+    }
+
+    testSystemProperties()
+    systemProperty("APPLICATION_LOGLEVEL", "TRACE")
+    systemProperty("HIBERNATE_LOGLEVEL", "DEBUG")
+    // systemProperty("HIBERNATE_LOGLEVEL", "TRACE")
+    systemProperty("FLYWAY_LOGLEVEL", "DEBUG")
 
     // https://docs.gradle.org/current/userguide/java_testing.html#sec:debugging_java_tests
     // https://www.jetbrains.com/help/idea/run-debug-configuration-junit.html
@@ -586,6 +602,33 @@ tasks.test {
     // finalizedBy("jacocoTestReport")
 }
 
+// Durchsatz- und Latenztests mit dem lokalen Stub fuer "fussballverein" ohne Netzwerkzugriff
+tasks.register<Test>("perfTest") {
+    description = "Durchsatz- und Latenztests mit dem lokalen Stub fuer fussballverein"
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags = setOf("perf")
+    }
+
+    // nicht "port", damit der Port von bootRun nicht versehentlich fuer den Stub verwendet wird
+    val stubPort = System.getProperty("stubPort") ?: "8089"
+    environment("KUNDE_SERVICE_HOST", "localhost")
+    environment("KUNDE_SERVICE_PORT", stubPort)
+    systemProperty("fussballverein.stub.port", stubPort)
+    systemProperty("fussballverein.stub.latenz", System.getProperty("latenz") ?: "lognormal:20ms:0.5")
+    systemProperty("fussballverein.stub.fehlerrate", System.getProperty("fehlerrate") ?: "0")
+    systemProperty("fussballverein.stub.anzahl", System.getProperty("anzahl") ?: "1000")
+    systemProperty("fussballverein.perf.dauer", System.getProperty("dauer") ?: "10s")
+    systemProperty("fussballverein.perf.aufrufer", System.getProperty("aufrufer") ?: "64")
+    systemProperty("fussballverein.perf.hedging", System.getProperty("hedging") ?: "false")
+    // Benchmarks mit @SpringBootTest benoetigen dieselbe DB-Konfiguration wie "test", z.B. mit -Ddb=mysql
+    testSystemProperties()
+
+    outputs.upToDateWhen { false }
+}
+
 // https://docs.qameta.io/allure/#_gradle_2
 allure {
     version.set(libs.versions.allure.get())
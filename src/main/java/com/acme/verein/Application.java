@@ -18,8 +18,10 @@ package com.acme.verein;
 
 import com.acme.verein.config.AppConfig;
 import com.acme.verein.config.dev.DevConfig;
+import com.acme.verein.repository.FussballvereinProps;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.hateoas.config.EnableHypermediaSupport;
@@ -36,6 +38,7 @@ import static org.springframework.hateoas.support.WebStack.WEBMVC;
 @Import({AppConfig.class, DevConfig.class})
 @EnableHypermediaSupport(type = HAL, stacks = WEBMVC)
 @EnableJpaRepositories(basePackages = "com.acme.verein.repository")
+@EnableConfigurationProperties(FussballvereinProps.class)
 @SuppressWarnings({"ImplicitSubclassInspection", "ClassUnconnectedToPackage"})
 public final class Application {
     private Application() {
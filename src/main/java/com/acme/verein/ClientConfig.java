@@ -16,30 +16,107 @@
  */
 package com.acme.verein;
 
-import com.acme.verein.repository.FussballvereinRestRepository;
+import com.acme.verein.repository.FussballvereinProps;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import java.time.Duration;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.graphql.client.HttpGraphQlClient;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.support.WebClientAdapter;
-import org.springframework.web.service.invoker.HttpServiceProxyFactory;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.netty.http.client.HttpClient;
 
 import static org.springframework.web.reactive.function.client.ExchangeFilterFunctions.basicAuthentication;
 
 /**
- * Beans für die REST-Schnittstelle zu "kunde" (WebClient) und für die GraphQL-Schnittstelle zu "kunde"
- * (HttpGraphQlClient).
+ * Beans für die GraphQL-Schnittstelle zu "fussballverein" (HttpGraphQlClient) mit Timeouts sowie Bulkhead und
+ * Circuit Breaker für die Aufrufe.
  *
  * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
  */
 public interface ClientConfig {
     String GRAPHQL_PATH = "/graphql";
     int KUNDE_DEFAULT_PORT = 8080;
+    String FUSSBALLVEREIN_CLIENT = "fussballverein";
 
     @Bean
-    default WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    default WebClient.Builder webClientBuilder(final FussballvereinProps props) {
+        final var client = props.client();
+        final var httpClient = HttpClient.create()
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) client.connectTimeout().toMillis())
+            .responseTimeout(client.responseTimeout());
+        return WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient));
+    }
+
+    /**
+     * Bulkhead, um die Anzahl gleichzeitiger Aufrufe von "fussballverein" zu begrenzen. Ist das Bulkhead voll, wird
+     * nicht gewartet, sondern sofort BulkheadFullException geworfen.
+     *
+     * @param props Konfiguration für die Aufrufe von "fussballverein"
+     * @param meterRegistry Registry für die Metriken "resilience4j.bulkhead.*"
+     * @return Bulkhead für die Aufrufe von "fussballverein"
+     */
+    @Bean
+    default Bulkhead fussballvereinBulkhead(final FussballvereinProps props, final MeterRegistry meterRegistry) {
+        final var config = BulkheadConfig.custom()
+            .maxConcurrentCalls(props.client().maxConcurrentCalls())
+            .maxWaitDuration(Duration.ZERO)
+            .build();
+        final var bulkhead = Bulkhead.of(FUSSBALLVEREIN_CLIENT, config);
+        TaggedBulkheadMetrics.ofBulkhead(bulkhead).bindTo(meterRegistry);
+        return bulkhead;
+    }
+
+    /**
+     * Circuit Breaker für die Aufrufe von "fussballverein": bei geöffnetem Circuit Breaker wird sofort
+     * CallNotPermittedException geworfen, so dass die Anwendungslogik die Ersatzwerte verwendet. Die Zustände sind
+     * über "resilience4j.circuitbreaker.state" und die Zustandsübergänge über
+     * "fussballverein.circuitbreaker.transitions" mit den Tags "from" und "to" als Metriken verfügbar.
+     *
+     * @param props Konfiguration für die Aufrufe von "fussballverein"
+     * @param meterRegistry Registry für die Metriken
+     * @return Circuit Breaker für die Aufrufe von "fussballverein"
+     */
+    @Bean
+    default CircuitBreaker fussballvereinCircuitBreaker(
+        final FussballvereinProps props,
+        final MeterRegistry meterRegistry
+    ) {
+        final var client = props.client();
+        final var config = CircuitBreakerConfig.custom()
+            .failureRateThreshold(client.failureRateThreshold())
+            .slidingWindowSize(client.slidingWindowSize())
+            .minimumNumberOfCalls(client.slidingWindowSize())
+            .waitDurationInOpenState(client.waitDurationInOpenState())
+            .automaticTransitionFromOpenToHalfOpenEnabled(true)
+            // ein volles Bulkhead ist kein Fehler von "fussballverein"
+            .ignoreExceptions(BulkheadFullException.class)
+            .build();
+        final var registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        final var circuitBreaker = registry.circuitBreaker(FUSSBALLVEREIN_CLIENT);
+
+        final var log = LoggerFactory.getLogger(ClientConfig.class);
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            final var transition = event.getStateTransition();
+            log.warn("fussballvereinCircuitBreaker: {}", transition);
+            meterRegistry.counter(
+                "fussballverein.circuitbreaker.transitions",
+                "from", transition.getFromState().name(),
+                "to", transition.getToState().name()
+            ).increment();
+        });
+        return circuitBreaker;
     }
 
     @Bean
@@ -63,38 +140,18 @@ public interface ClientConfig {
             .port(kundePort);
     }
 
-    // siehe org.springframework.web.reactive.function.client.DefaultWebClient
-    @Bean
-    default WebClient webClient(
-        final WebClient.Builder webClientBuilder,
-        final UriComponentsBuilder uriComponentsBuilder
-    ) {
-        final var uriComponents = uriComponentsBuilder.build();
-        final var baseUrl = uriComponents.toUriString();
-        return webClientBuilder
-            .baseUrl(baseUrl)
-            .filter(basicAuthentication("admin", "p"))
-            .build();
-    }
-
-    @Bean
-    default FussballvereinRestRepository fussballvereinRestRepository(final WebClient builder) {
-        final var clientAdapter = WebClientAdapter.forClient(builder);
-        final var proxyFactory = HttpServiceProxyFactory.builder(clientAdapter).build();
-        return proxyFactory.createClient(FussballvereinRestRepository.class);
-    }
-
     // siehe org.springframework.graphql.client.DefaultHttpGraphQlClientBuilder.DefaultHttpGraphQlClient
     @Bean
     default HttpGraphQlClient graphQlClient(
         final WebClient.Builder webClientBuilder,
         final UriComponentsBuilder uriComponentsBuilder
     ) {
-        final var uriComponents = uriComponentsBuilder
+        // Kopien, damit die Singletons fuer andere Beans unveraendert bleiben
+        final var uriComponents = uriComponentsBuilder.cloneBuilder()
             .path(GRAPHQL_PATH)
             .build();
         final var baseUrl = uriComponents.toUriString();
-        final var webclient = webClientBuilder
+        final var webclient = webClientBuilder.clone()
             .baseUrl(baseUrl)
             .filter(basicAuthentication("admin", "p"))
             .build();
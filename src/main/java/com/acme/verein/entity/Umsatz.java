@@ -17,6 +17,7 @@
 package com.acme.verein.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
@@ -32,6 +33,9 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+
+import static org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE;
 
 /**
  * Geldbetrag und Währungseinheit für eine Umsatzangabe.
@@ -40,6 +44,8 @@ import lombok.ToString;
 
 @Entity
 @Table(name = "umsatz")
+@Cacheable
+@Cache(usage = READ_WRITE)
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -17,11 +17,14 @@
 package com.acme.verein.entity;
 
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
@@ -35,6 +38,7 @@ import jakarta.validation.constraints.Size;
 import java.net.URL;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Locale;
 import java.util.UUID;
 
 import lombok.AllArgsConstructor;
@@ -44,12 +48,14 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import static jakarta.persistence.CascadeType.PERSIST;
 import static jakarta.persistence.CascadeType.REMOVE;
 import static jakarta.persistence.FetchType.LAZY;
+import static org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE;
 
 /**
  * Daten eines Vereins. In DDD ist Verein ist ein Aggregate Root.
@@ -60,6 +66,10 @@ import static jakarta.persistence.FetchType.LAZY;
 // https://thorben-janssen.com/java-records-hibernate-jpa
 @Entity
 @Table(name = "verein")
+@NamedEntityGraph(name = Verein.ADRESSE_GRAPH, attributeNodes = @NamedAttributeNode("adresse"))
+// 2nd-Level-Cache mit JCache und Caffeine: Konfiguration in application.yml und application.conf
+@Cacheable
+@Cache(usage = READ_WRITE)
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(onlyExplicitlyIncluded = true, callSuper = false)
@@ -91,6 +101,11 @@ public class Verein {
      */
     public static final long MAX_KATEGORIE = 9L;
 
+    /**
+     * Name des Entity-Graphen, mit dem die Adresse im selben SELECT gelesen wird, z.B. für REST und den Export.
+     */
+    public static final String ADRESSE_GRAPH = "Verein.adresse";
+
 
     /**
      * Die ID des Vereins.
@@ -132,6 +147,16 @@ public class Verein {
     @NotNull
     private String email;
 
+    /**
+     * Die Emailadresse in Kleinbuchstaben, damit die Suche ohne Funktionsaufruf den Index verwenden kann. Wird beim
+     * Schreiben durch die Anwendungslogik gesetzt.
+     *
+     * @param emailNormalized Die Emailadresse in Kleinbuchstaben.
+     * @return Die Emailadresse in Kleinbuchstaben.
+     */
+    @Column(name = "email_normalized")
+    private String emailNormalized;
+
 
     /**
      * Das Gruendungsdatum des Vereins.
@@ -200,6 +225,16 @@ public class Verein {
         homepage = verein.homepage;
     }
 
+    /**
+     * Eine Emailadresse für die Spalte email_normalized normalisieren.
+     *
+     * @param email Die Emailadresse oder null.
+     * @return Die Emailadresse in Kleinbuchstaben oder null.
+     */
+    public static String normalizeEmail(final String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+
     @Transient
     private String fussballvereinVereinsname;
 
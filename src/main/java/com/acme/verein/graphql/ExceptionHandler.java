@@ -17,8 +17,10 @@
 package com.acme.verein.graphql;
 
 import com.acme.verein.service.ConstraintViolationsException;
+import com.acme.verein.service.InvalidArgumentException;
 import com.acme.verein.service.NotFoundException;
 import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
 import graphql.schema.DataFetchingEnvironment;
 
 import java.time.format.DateTimeParseException;
@@ -28,6 +30,8 @@ import java.util.stream.Collectors;
 import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
 import org.springframework.stereotype.Component;
 
+import static org.springframework.graphql.execution.ErrorType.BAD_REQUEST;
+
 /**
  * Abbildung von Exceptions auf GraphQLError.
  *
@@ -53,6 +57,13 @@ final class ExceptionHandler extends DataFetcherExceptionResolverAdapter {
             return new NotFoundError(notFound.getId(), notFound.getSuchkriterien());
         } else if (ex instanceof DateTimeParseException dateTimeParse) {
             return new DateTimeParseError(dateTimeParse.getParsedString());
+        } else if (ex instanceof InvalidArgumentException) {
+            // z.B. ungueltiges Argument "first" oder ungueltiger Cursor bei einer Connection; die Meldung stammt von
+            // der Anwendung, andere IllegalArgumentException bleiben INTERNAL_ERROR ohne Meldung
+            return GraphqlErrorBuilder.newError(env)
+                .errorType(BAD_REQUEST)
+                .message(ex.getMessage())
+                .build();
         }
         return super.resolveToSingleError(ex, env);
     }
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.graphql;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Value-Klasse für die Informationen zu einer Seite innerhalb einer {@link VereinConnection}.
+ *
+ * @param hasNextPage Flag, ob es weitere Vereine gibt
+ * @param hasPreviousPage Flag, ob es vorherige Vereine gibt; beim Blättern vorwärts immer false
+ * @param startCursor Der Cursor des ersten Vereins oder null bei einer leeren Seite
+ * @param endCursor Der Cursor des letzten Vereins oder null bei einer leeren Seite
+ */
+record PageInfo(
+    boolean hasNextPage,
+    boolean hasPreviousPage,
+    @Nullable String startCursor,
+    @Nullable String endCursor
+) {
+}
@@ -16,20 +16,46 @@
  */
 package com.acme.verein.graphql;
 
+import org.springframework.lang.Nullable;
 import org.springframework.util.LinkedMultiValueMap;
 
 import java.util.List;
 import java.util.Map;
 
+import static com.acme.verein.repository.SpecBuilder.EMAIL;
+import static com.acme.verein.repository.SpecBuilder.FUSSBALLVEREIN_ID;
+import static com.acme.verein.repository.SpecBuilder.GRUENDUNGSDATUM_BIS;
+import static com.acme.verein.repository.SpecBuilder.GRUENDUNGSDATUM_VON;
+import static com.acme.verein.repository.SpecBuilder.NAME;
+import static com.acme.verein.repository.SpecBuilder.ORT;
+import static com.acme.verein.repository.SpecBuilder.PLZ;
+import static com.acme.verein.repository.SpecBuilder.UMSATZ_MAX;
+import static com.acme.verein.repository.SpecBuilder.UMSATZ_MIN;
+
 /**
- * Eine Value-Klasse für Eingabedaten passend zu Suchkriterien aus dem GraphQL-Schema.
+ * Eine Value-Klasse für Eingabedaten passend zu Suchkriterien aus dem GraphQL-Schema. Die Schlüssel der Map sind
+ * dieselben wie bei den Query-Parametern der REST-Schnittstelle, siehe {@link com.acme.verein.repository.SpecBuilder}.
  *
- * @param name  Name
- * @param email Emailadresse
+ * @param name  Teilstring des Namens
+ * @param email Präfix der Emailadresse
+ * @param plz Präfix der Postleitzahl
+ * @param ort Präfix des Orts
+ * @param gruendungsdatumVon Frühestes Gründungsdatum im Format yyyy-MM-dd
+ * @param gruendungsdatumBis Spätestes Gründungsdatum im Format yyyy-MM-dd
+ * @param umsatzMin Mindestbetrag des Umsatzes
+ * @param umsatzMax Höchstbetrag des Umsatzes
+ * @param fussballvereinId ID des Fussballvereins
  */
 record Suchkriterien(
-    String name,
-    String email
+    @Nullable String name,
+    @Nullable String email,
+    @Nullable String plz,
+    @Nullable String ort,
+    @Nullable String gruendungsdatumVon,
+    @Nullable String gruendungsdatumBis,
+    @Nullable String umsatzMin,
+    @Nullable String umsatzMax,
+    @Nullable String fussballvereinId
 ) {
     /**
      * Konvertierung in eine Map.
@@ -38,12 +64,21 @@ record Suchkriterien(
      */
     Map<String, List<String>> toMap() {
         final Map<String, List<String>> map = new LinkedMultiValueMap<>();
-        if (name != null) {
-            map.put("nachname", List.of(name));
-        }
-        if (email != null) {
-            map.put("email", List.of(email));
-        }
+        put(map, NAME, name);
+        put(map, EMAIL, email);
+        put(map, PLZ, plz);
+        put(map, ORT, ort);
+        put(map, GRUENDUNGSDATUM_VON, gruendungsdatumVon);
+        put(map, GRUENDUNGSDATUM_BIS, gruendungsdatumBis);
+        put(map, UMSATZ_MIN, umsatzMin);
+        put(map, UMSATZ_MAX, umsatzMax);
+        put(map, FUSSBALLVEREIN_ID, fussballvereinId);
         return map;
     }
+
+    private static void put(final Map<String, List<String>> map, final String key, @Nullable final String value) {
+        if (value != null) {
+            map.put(key, List.of(value));
+        }
+    }
 }
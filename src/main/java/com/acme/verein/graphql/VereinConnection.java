@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.graphql;
+
+import java.util.List;
+
+/**
+ * Value-Klasse für eine Seite von Vereinen als "Connection" gemäß der Relay-Spezifikation.
+ *
+ * @param edges Die Vereine der Seite jeweils mit ihrem Cursor
+ * @param pageInfo Informationen zur Seite
+ */
+record VereinConnection(List<VereinEdge> edges, PageInfo pageInfo) {
+}
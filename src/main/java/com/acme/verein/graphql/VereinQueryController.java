@@ -16,19 +16,31 @@
  */
 package com.acme.verein.graphql;
 
+import com.acme.verein.entity.Umsatz;
 import com.acme.verein.entity.Verein;
+import com.acme.verein.repository.Fussballverein;
+import com.acme.verein.service.Cursor;
+import com.acme.verein.service.InvalidArgumentException;
+import com.acme.verein.service.Keyset;
 import com.acme.verein.service.VereinReadService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
 
 import static java.util.Collections.emptyMap;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Eine Controller-Klasse für das Lesen mit der GraphQL-Schnittstelle und den Typen aus dem GraphQL-Schema.
@@ -39,6 +51,11 @@ import java.util.UUID;
 @RequiredArgsConstructor
 @Slf4j
 final class VereinQueryController {
+    /**
+     * Maximale Anzahl der Vereine je Seite einer Connection.
+     */
+    static final int MAX_FIRST = VereinReadService.MAX_LIMIT;
+
     private final VereinReadService service;
 
     /**
@@ -56,7 +73,8 @@ final class VereinQueryController {
     }
 
     /**
-     * Suche mit diversen Suchkriterien.
+     * Suche mit diversen Suchkriterien. Ohne Suchkriterien werden alle Vereine ohne Obergrenze gelesen, deshalb ist
+     * die Query im Schema als "deprecated" markiert; stattdessen gibt es {@link #vereineConnection}.
      *
      * @param input Suchkriterien und ihre Werte, z.B. `name` und `Alpha`
      * @return Die gefundenen vereine als Collection
@@ -69,4 +87,89 @@ final class VereinQueryController {
         log.debug("vereine: {}", vereine);
         return vereine;
     }
+
+    /**
+     * Seitenweise Suche mit "Keyset Pagination" nach der ID als Connection gemäß der Relay-Spezifikation.
+     *
+     * @param first Anzahl der Vereine, höchstens {@value #MAX_FIRST}; Default 20 gemäß dem Schema
+     * @param after Cursor des letzten Vereins der vorherigen Seite
+     * @param filter Suchkriterien, die mit AND verknüpft werden
+     * @return Die Vereine der Seite mit ihren Cursorn und den Informationen zur Seite
+     * @throws InvalidArgumentException Falls first nicht zwischen 1 und {@value #MAX_FIRST} liegt oder der Cursor
+     *     ungültig bzw. nicht nach der ID sortiert ist
+     */
+    @QueryMapping
+    VereinConnection vereineConnection(
+        @Argument final int first,
+        @Argument final Optional<String> after,
+        @Argument final Optional<Suchkriterien> filter
+    ) {
+        log.debug("vereineConnection: first={}, after={}, filter={}", first, after, filter);
+        if (first < 1 || first > MAX_FIRST) {
+            throw new InvalidArgumentException("first muss zwischen 1 und " + MAX_FIRST + " liegen: " + first);
+        }
+        final var nach = after.map(Cursor::decode).orElse(null);
+        final var suchkriterien = filter.map(Suchkriterien::toMap).orElse(emptyMap());
+
+        final var seite = service.findSeite(suchkriterien, nach, first);
+        final var edges = seite.getContent()
+            .stream()
+            .map(verein -> new VereinEdge(Cursor.encode(Keyset.nach(verein, Keyset.Sortierung.ID)), verein))
+            .toList();
+        final var pageInfo = new PageInfo(
+            seite.hasNext(),
+            false,
+            edges.isEmpty() ? null : edges.get(0).cursor(),
+            edges.isEmpty() ? null : edges.get(edges.size() - 1).cursor()
+        );
+        log.debug("vereineConnection: {} Vereine, {}", edges.size(), pageInfo);
+        return new VereinConnection(edges, pageInfo);
+    }
+
+    /**
+     * Das Feld "umsatz" für alle Vereine einer Response mit einem SELECT auflösen, statt je Verein den Umsatz einzeln
+     * nachzuladen.
+     *
+     * @param vereine Die Vereine der Response, deren Feld "umsatz" selektiert ist
+     * @return Die Umsätze je Verein. Vereine ohne Umsatz sind nicht enthalten.
+     */
+    @BatchMapping
+    Map<Verein, Umsatz> umsatz(final List<Verein> vereine) {
+        final var umsaetze = service.findUmsaetze(vereine.stream().map(Verein::getId).toList());
+        final Map<Verein, Umsatz> result = new HashMap<>();
+        vereine.forEach(verein -> {
+            final var umsatz = umsaetze.get(verein.getId());
+            if (umsatz != null) {
+                result.put(verein, umsatz);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Das Feld "fussballverein" für alle Vereine einer Response gebündelt auflösen. Der Microservice "fussballverein"
+     * wird nur aufgerufen, wenn eine Query das Feld auch selektiert, und dann mit allen Fussballverein-IDs auf
+     * einmal.
+     *
+     * @param vereine Die Vereine der Response, deren Feld "fussballverein" selektiert ist
+     * @return Mono mit den Fussballvereinen je Verein. Vereine ohne gefundenen Fussballverein sind nicht enthalten.
+     */
+    @BatchMapping
+    Mono<Map<Verein, Fussballverein>> fussballverein(final List<Verein> vereine) {
+        final var fussballvereinIds = vereine.stream()
+            .map(Verein::getFussballvereinId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        log.debug("fussballverein: fussballvereinIds={}", fussballvereinIds);
+        return service.findFussballvereine(fussballvereinIds).map(fussballvereine -> {
+            final Map<Verein, Fussballverein> result = new HashMap<>();
+            vereine.forEach(verein -> {
+                final var fussballvereinId = verein.getFussballvereinId();
+                if (fussballvereinId != null && fussballvereine.containsKey(fussballvereinId)) {
+                    result.put(verein, fussballvereine.get(fussballvereinId));
+                }
+            });
+            return result;
+        });
+    }
 }
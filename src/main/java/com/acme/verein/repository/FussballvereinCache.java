@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Größenbeschränkter Cache für Fussballvereindaten mit W-TinyLFU als Verdrängungsstrategie. Nicht gefundene
+ * Fussballverein-IDs werden als leeres Optional mit einer kürzeren Gültigkeitsdauer gespeichert. Gefundene
+ * Fussballvereine bleiben nach Ablauf ihrer Gültigkeitsdauer noch bis zur maximalen Veraltung ("max staleness") im
+ * Cache, damit sie sofort geliefert und im Hintergrund aktualisiert werden können ("stale-while-revalidate"). Nach
+ * einer fehlgeschlagenen Aktualisierung wird der veraltete Eintrag erst nach einer Wartezeit erneut aktualisiert. Die
+ * Metriken "cache.gets", "cache.puts", "cache.evictions" und "cache.size" stehen mit dem Tag "cache=fussballverein"
+ * über Actuator zur Verfügung.
+ */
+@Component
+@Slf4j
+public class FussballvereinCache {
+    /**
+     * Name des Caches für die Metriken.
+     */
+    public static final String CACHE_NAME = "fussballverein";
+
+    private final Cache<UUID, Eintrag> cache;
+    // IDs, deren Aktualisierung im Hintergrund fehlgeschlagen ist, bis zum Ablauf der Wartezeit
+    private final Cache<UUID, Boolean> refreshFehler;
+    private final Ticker ticker;
+    private final long ttl;
+
+    /**
+     * Konstruktor mit der Konfiguration für den Cache.
+     *
+     * @param props Konfiguration für Fussballvereindaten
+     * @param meterRegistry Registry für die Metriken des Caches
+     */
+    @Autowired
+    public FussballvereinCache(final FussballvereinProps props, final MeterRegistry meterRegistry) {
+        this(props, meterRegistry, Ticker.systemTicker());
+    }
+
+    /**
+     * Konstruktor mit einem eigenen Ticker, z.B. für Tests ohne Warten.
+     *
+     * @param props Konfiguration für Fussballvereindaten
+     * @param meterRegistry Registry für die Metriken des Caches
+     * @param ticker Ticker für die Gültigkeitsdauer und die Wartezeit nach einer fehlgeschlagenen Aktualisierung
+     */
+    FussballvereinCache(final FussballvereinProps props, final MeterRegistry meterRegistry, final Ticker ticker) {
+        this.ticker = ticker;
+        final var cacheProps = props.cache();
+        log.info("FussballvereinCache: {}", cacheProps);
+        ttl = cacheProps.ttl().toNanos();
+        final var maxAge = ttl + cacheProps.maxStaleness().toNanos();
+        final var negativeTtl = cacheProps.negativeTtl().toNanos();
+        cache = Caffeine.newBuilder()
+            .maximumSize(cacheProps.maximumSize())
+            .ticker(ticker)
+            .expireAfter(new Expiry<UUID, Eintrag>() {
+                @Override
+                public long expireAfterCreate(
+                    final UUID key,
+                    final Eintrag value,
+                    final long currentTime
+                ) {
+                    return value.fussballverein().isPresent() ? maxAge : negativeTtl;
+                }
+
+                @Override
+                public long expireAfterUpdate(
+                    final UUID key,
+                    final Eintrag value,
+                    final long currentTime,
+                    final long currentDuration
+                ) {
+                    return value.fussballverein().isPresent() ? maxAge : negativeTtl;
+                }
+
+                @Override
+                public long expireAfterRead(
+                    final UUID key,
+                    final Eintrag value,
+                    final long currentTime,
+                    final long currentDuration
+                ) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        refreshFehler = Caffeine.newBuilder()
+            .maximumSize(cacheProps.maximumSize())
+            .ticker(ticker)
+            .expireAfterWrite(cacheProps.refreshBackoff())
+            .build();
+    }
+
+    /**
+     * Einen Eintrag aus dem Cache lesen.
+     *
+     * @param fussballvereinId Die ID des Fussballvereins
+     * @return null, falls es keinen Eintrag innerhalb der maximalen Veraltung gibt, sonst der Eintrag
+     */
+    @Nullable
+    Eintrag get(final UUID fussballvereinId) {
+        return cache.getIfPresent(fussballvereinId);
+    }
+
+    /**
+     * Einen gefundenen Fussballverein in den Cache schreiben.
+     *
+     * @param fussballvereinId Die ID des Fussballvereins
+     * @param fussballverein Der gefundene Fussballverein
+     */
+    void put(final UUID fussballvereinId, final Fussballverein fussballverein) {
+        cache.put(fussballvereinId, new Eintrag(Optional.of(fussballverein), ticker.read()));
+        refreshFehler.invalidate(fussballvereinId);
+    }
+
+    /**
+     * Eine nicht gefundene Fussballverein-ID in den Cache schreiben.
+     *
+     * @param fussballvereinId Die nicht gefundene ID
+     */
+    void putNotFound(final UUID fussballvereinId) {
+        cache.put(fussballvereinId, new Eintrag(Optional.empty(), ticker.read()));
+        refreshFehler.invalidate(fussballvereinId);
+    }
+
+    /**
+     * Eine fehlgeschlagene Aktualisierung im Hintergrund vermerken. Der veraltete Eintrag bleibt unverändert im Cache
+     * und wird erst nach der Wartezeit erneut aktualisiert, damit ein ausgefallener Microservice nicht bei jedem
+     * Lesezugriff angefragt wird.
+     *
+     * @param fussballvereinId Die ID des Fussballvereins
+     */
+    void refreshFailed(final UUID fussballvereinId) {
+        refreshFehler.put(fussballvereinId, Boolean.TRUE);
+    }
+
+    /**
+     * Prüfen, ob die Gültigkeitsdauer eines Eintrags abgelaufen ist und er im Hintergrund aktualisiert werden soll.
+     * Nach einer fehlgeschlagenen Aktualisierung gilt das erst wieder nach Ablauf der Wartezeit.
+     *
+     * @param fussballvereinId Die ID des Fussballvereins
+     * @param eintrag Ein Eintrag aus dem Cache
+     * @return true, falls der Eintrag veraltet ist und aktualisiert werden soll
+     */
+    boolean needsRefresh(final UUID fussballvereinId, final Eintrag eintrag) {
+        return ticker.read() - eintrag.geschrieben() > ttl && refreshFehler.getIfPresent(fussballvereinId) == null;
+    }
+
+    /**
+     * Eintrag im Cache.
+     *
+     * @param fussballverein Leeres Optional, falls die ID nicht gefunden wurde, sonst ein Optional mit dem
+     *     Fussballverein
+     * @param geschrieben Zeitpunkt des Schreibens in Nanosekunden des Tickers
+     */
+    record Eintrag(Optional<Fussballverein> fussballverein, long geschrieben) {
+    }
+}
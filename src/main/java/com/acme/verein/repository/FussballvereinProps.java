@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Spring-Konfiguration für Properties "app.fussballverein.*".
+ *
+ * @param cache Konfiguration des Caches für Fussballvereindaten
+ * @param client Konfiguration für Timeouts, Bulkhead und Circuit Breaker der Aufrufe
+ * @param hedging Konfiguration für Hedged Requests
+ */
+@ConfigurationProperties(prefix = "app.fussballverein")
+public record FussballvereinProps(
+    @DefaultValue Cache cache,
+    @DefaultValue Client client,
+    @DefaultValue Hedging hedging
+) {
+    /**
+     * Konfiguration des Caches für Fussballvereindaten.
+     *
+     * @param maximumSize Maximale Anzahl an Einträgen
+     * @param ttl Gültigkeitsdauer eines gefundenen Fussballvereins ab dem Schreiben in den Cache
+     * @param negativeTtl Gültigkeitsdauer für eine nicht gefundene Fussballverein-ID
+     * @param maxStaleness Maximale Dauer nach Ablauf der Gültigkeitsdauer, in der ein veralteter Fussballverein noch
+     *     geliefert und im Hintergrund aktualisiert wird
+     * @param refreshBackoff Wartezeit nach einer fehlgeschlagenen Aktualisierung im Hintergrund bis zum nächsten
+     *     Versuch
+     */
+    public record Cache(
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("10m") Duration ttl,
+        @DefaultValue("30s") Duration negativeTtl,
+        @DefaultValue("1h") Duration maxStaleness,
+        @DefaultValue("30s") Duration refreshBackoff
+    ) {
+    }
+
+    /**
+     * Konfiguration für Timeouts, Bulkhead und Circuit Breaker der Aufrufe von "fussballverein".
+     *
+     * @param connectTimeout Maximale Dauer für den Verbindungsaufbau
+     * @param responseTimeout Maximale Dauer zwischen Request und Response
+     * @param deadline Maximale Gesamtdauer eines Aufrufs einschließlich Warten auf eine Verbindung
+     * @param maxConcurrentCalls Maximale Anzahl gleichzeitiger Aufrufe (Bulkhead)
+     * @param failureRateThreshold Fehlerrate in Prozent, ab der der Circuit Breaker öffnet
+     * @param slidingWindowSize Anzahl der letzten Aufrufe, aus denen die Fehlerrate berechnet wird
+     * @param waitDurationInOpenState Dauer, bis der geöffnete Circuit Breaker wieder Aufrufe testet
+     */
+    public record Client(
+        @DefaultValue("1s") Duration connectTimeout,
+        @DefaultValue("2s") Duration responseTimeout,
+        @DefaultValue("3s") Duration deadline,
+        @DefaultValue("32") int maxConcurrentCalls,
+        @DefaultValue("50") float failureRateThreshold,
+        @DefaultValue("20") int slidingWindowSize,
+        @DefaultValue("30s") Duration waitDurationInOpenState
+    ) {
+    }
+
+    /**
+     * Konfiguration für Hedged Requests: antwortet "fussballverein" nicht innerhalb der bisherigen Antwortzeit zum
+     * Perzentil, wird ein zweiter Request gesendet und die schnellere Antwort verwendet.
+     *
+     * @param enabled Flag, ob Hedged Requests gesendet werden
+     * @param percentile Perzentil der bisherigen Antwortzeiten als Wartezeit bis zum zweiten Request, z.B. 0.95
+     * @param minDelay Minimale Wartezeit bis zum zweiten Request
+     * @param budgetPercent Maximaler Anteil zusätzlicher Requests in Prozent aller Requests
+     */
+    public record Hedging(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0.95") double percentile,
+        @DefaultValue("20ms") Duration minDelay,
+        @DefaultValue("10") int budgetPercent
+    ) {
+    }
+}
@@ -16,88 +16,407 @@
  */
 package com.acme.verein.repository;
 
-import lombok.RequiredArgsConstructor;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.graphql.client.FieldAccessException;
+import org.springframework.graphql.ResponseError;
+import org.springframework.graphql.client.ClientGraphQlResponse;
 import org.springframework.graphql.client.GraphQlTransportException;
 import org.springframework.graphql.client.HttpGraphQlClient;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
-import org.springframework.web.reactive.function.client.WebClientException;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor;
 
 /**
- * REST- oder GraphQL-Client für Fussballvereindaten.
- *
+ * GraphQL-Client für Fussballvereindaten. Vereinsname und Emailadresse werden mit einem einzigen Request abgefragt,
+ * mehrere IDs werden über Aliase in einem Request gebündelt. Ergebnisse werden in {@link FussballvereinCache}
+ * zwischengespeichert. Jeder Request ist durch eine Deadline, ein Bulkhead und einen Circuit Breaker abgesichert, so
+ * dass ein langsamer oder ausgefallener Microservice "fussballverein" keine Threads blockiert. Optional wird bei einer
+ * langsamen Antwort ein zweiter Request gesendet ("Hedged Request"), siehe {@link HedgingPolicy}. Veraltete
+ * Einträge im Cache werden sofort geliefert und mit "Virtual Threads" im Hintergrund aktualisiert.
  */
 @Repository
-@RequiredArgsConstructor
 @Slf4j
 public class FussballvereinRepository {
-    private final FussballvereinRestRepository fussballvereinRestRepository;
+    /**
+     * Maximale Anzahl gleichzeitiger Requests bei einer gebündelten Suche.
+     */
+    static final int MAX_CONCURRENCY = 16;
+
+    /**
+     * Maximale Anzahl an IDs, die mit Aliasen in einem GraphQL-Request abgefragt werden.
+     */
+    static final int BATCH_SIZE = 50;
+
+    private static final String ALIAS_PREFIX = "f";
+    private static final String VARIABLE_PREFIX = "id";
+
+    // Je Anzahl an IDs genau ein Dokument, das mit Variablen parametrisiert wird
+    private final Map<Integer, String> dokumente = new ConcurrentHashMap<>();
+
+    // laufende Requests je ID, an die sich nebenlaeufige Aufrufer fuer dieselbe ID anhaengen ("Single Flight")
+    private final Map<UUID, Mono<Optional<Fussballverein>>> inFlight = new ConcurrentHashMap<>();
+
+    // IDs, deren veralteter Eintrag im Cache gerade im Hintergrund aktualisiert wird
+    private final Set<UUID> refreshing = ConcurrentHashMap.newKeySet();
+    private final Scheduler refreshScheduler =
+        Schedulers.fromExecutorService(newVirtualThreadPerTaskExecutor(), "fussballverein-refresh");
+
     private final HttpGraphQlClient graphQlClient;
+    private final FussballvereinCache cache;
+    private final Duration deadline;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final HedgingPolicy hedging;
+    private final Counter lookups;
+    private final Counter coalesced;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    private final Counter refreshes;
 
     /**
-     * Fussballverein anhand der Fussballverein-ID suchen.
+     * Konstruktor mit dem GraphQL-Client, dem Cache und der Registry für die Metriken "fussballverein.lookups",
+     * "fussballverein.lookups.coalesced", "fussballverein.lookups.coalescing.ratio", "fussballverein.hedges.sent",
+     * "fussballverein.hedges.won" und "fussballverein.refreshes".
+     *
+     * @param graphQlClient GraphQL-Client für den Microservice "fussballverein"
+     * @param cache Cache für Fussballvereindaten
+     * @param props Konfiguration mit der Deadline für einen Request und für Hedged Requests
+     * @param bulkhead Bulkhead für die Requests
+     * @param circuitBreaker Circuit Breaker für die Requests
+     * @param meterRegistry Registry für die Metriken
+     */
+    public FussballvereinRepository(
+        final HttpGraphQlClient graphQlClient,
+        final FussballvereinCache cache,
+        final FussballvereinProps props,
+        final Bulkhead bulkhead,
+        final CircuitBreaker circuitBreaker,
+        final MeterRegistry meterRegistry
+    ) {
+        this.graphQlClient = graphQlClient;
+        this.cache = cache;
+        deadline = props.client().deadline();
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+        hedging = new HedgingPolicy(props.hedging());
+        lookups = Counter.builder("fussballverein.lookups")
+            .description("IDs, die nicht im Cache gefunden wurden und remote gesucht werden")
+            .register(meterRegistry);
+        coalesced = Counter.builder("fussballverein.lookups.coalesced")
+            .description("IDs, die an einen bereits laufenden Request angehaengt wurden")
+            .register(meterRegistry);
+        Gauge.builder("fussballverein.lookups.coalescing.ratio", this, FussballvereinRepository::coalescingRatio)
+            .description("Anteil der angehaengten an allen remote gesuchten IDs")
+            .register(meterRegistry);
+        hedgesSent = Counter.builder("fussballverein.hedges.sent")
+            .description("Zusaetzliche Requests wegen einer langsamen Antwort")
+            .register(meterRegistry);
+        hedgesWon = Counter.builder("fussballverein.hedges.won")
+            .description("Zusaetzliche Requests, die schneller als der erste Request waren")
+            .register(meterRegistry);
+        refreshes = Counter.builder("fussballverein.refreshes")
+            .description("Aktualisierungen veralteter Eintraege im Cache im Hintergrund")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Den Scheduler für die Aktualisierungen im Hintergrund beim Herunterfahren beenden.
+     */
+    @PreDestroy
+    void dispose() {
+        log.debug("dispose");
+        refreshScheduler.dispose();
+    }
+
+    /**
+     * Fussballverein mit Vereinsname und Emailadresse anhand der Fussballverein-ID suchen, ohne auf das Ergebnis zu
+     * warten.
      *
      * @param fussballvereinId Die Id des gesuchten Fussballvereine.
-     * @return Der gefundene Fussballverein oder null.
-     * @throws FussballvereinServiceException falls beim Zugriff auf den Web Service eine Exception eingetreten ist.
+     * @return Mono mit dem gefundenen Fussballverein oder leeres Mono. Falls beim Zugriff auf den Web Service eine
+     *     Exception eingetreten ist, enthält das Mono eine FussballvereinServiceException.
+     */
+    public Mono<Fussballverein> findByIdAsync(final UUID fussballvereinId) {
+        log.debug("findByIdAsync: fussballvereinId={}", fussballvereinId);
+        final var cached = cached(fussballvereinId);
+        if (cached != null) {
+            log.debug("findByIdAsync: Cache-Treffer {}", cached);
+            return Mono.justOrEmpty(cached);
+        }
+        return load(List.of(fussballvereinId)).mapNotNull(fussballvereine -> fussballvereine.get(fussballvereinId));
+    }
+
+    /**
+     * Fussballvereine zu mehreren Fussballverein-IDs gebündelt suchen. IDs aus dem Cache werden nicht angefragt, jede
+     * übrige ID wird nur einmal angefragt, je {@value #BATCH_SIZE} IDs werden in einem GraphQL-Request zusammengefasst
+     * und die Requests laufen nebenläufig.
+     *
+     * @param fussballvereinIds Die IDs der gesuchten Fussballvereine.
+     * @return Mono mit einer Map der gefundenen Fussballvereine. Nicht gefundene IDs sind nicht enthalten. Falls beim
+     *     Zugriff auf den Web Service eine Exception eingetreten ist, enthält das Mono eine
+     *     FussballvereinServiceException.
      */
-    public Optional<Fussballverein> findById(final UUID fussballvereinId) {
-        log.debug("findById: fussballvereinId={}", fussballvereinId);
-
-        final Fussballverein fussballverein;
-        try {
-            fussballverein = fussballvereinRestRepository.getFussballverein(fussballvereinId.toString()).block();
-        } catch (final WebClientResponseException.NotFound ex) {
-            log.error("findById: WebClientResponseException.NotFound");
-            return Optional.empty();
-        } catch (final WebClientException ex) {
-            // WebClientRequestException oder WebClientResponseException (z.B. ServiceUnavailable)
-            log.error("findById: {}", ex.getClass().getSimpleName());
-            throw new FussballvereinServiceException(ex);
+    public Mono<Map<UUID, Fussballverein>> findByIdsAsync(final Collection<UUID> fussballvereinIds) {
+        log.debug("findByIdsAsync: fussballvereinIds={}", fussballvereinIds);
+        final Map<UUID, Fussballverein> treffer = new HashMap<>();
+        final List<UUID> fehlend = new ArrayList<>();
+        fussballvereinIds.stream().distinct().forEach(id -> {
+            final var cached = cached(id);
+            if (cached == null) {
+                fehlend.add(id);
+            } else {
+                cached.ifPresent(fussballverein -> treffer.put(id, fussballverein));
+            }
+        });
+        log.debug("findByIdsAsync: {} Cache-Treffer, {} fehlend", treffer.size(), fehlend.size());
+        if (fehlend.isEmpty()) {
+            return Mono.just(treffer);
         }
 
-        log.debug("findById: {}", fussballverein);
-        return Optional.ofNullable(fussballverein);
+        return load(fehlend).map(fussballvereine -> {
+            fussballvereine.putAll(treffer);
+            return fussballvereine;
+        });
     }
 
     /**
-     * Die Emailadresse anhand der Fussballverein-ID suchen.
+     * Einen Eintrag aus dem Cache lesen. Ist der Eintrag veraltet, wird er trotzdem geliefert und im Hintergrund
+     * aktualisiert, damit der Aufrufer nicht auf den Request warten muss.
      *
-     * @param fussballvereinId Die Id des gesuchten Fussballvereine.
-     * @return Die Emailadresse in einem Optional oder ein leeres Optional.
-     * @throws FussballvereinServiceException falls beim Zugriff auf den Web Service eine Exception eingetreten ist.
+     * @param fussballvereinId Die ID des Fussballvereins
+     * @return null, falls es keinen Eintrag gibt, sonst ein evtl. leeres Optional
      */
-    public Optional<String> findEmailById(final UUID fussballvereinId) {
-        log.debug("findEmailById: fussballvereinId={}", fussballvereinId);
-        final var query = """
-            query {
-                fussballverein(id: "%s") {
-                    email
+    @Nullable
+    @SuppressWarnings("OptionalAssignedToNull")
+    private Optional<Fussballverein> cached(final UUID fussballvereinId) {
+        final var eintrag = cache.get(fussballvereinId);
+        if (eintrag == null) {
+            return null;
+        }
+        if (cache.needsRefresh(fussballvereinId, eintrag) && refreshing.add(fussballvereinId)) {
+            log.debug("cached: Aktualisierung im Hintergrund fuer {}", fussballvereinId);
+            refreshes.increment();
+            load(List.of(fussballvereinId))
+                .subscribeOn(refreshScheduler)
+                // Wartezeit vermerken, bevor die ID fuer eine weitere Aktualisierung freigegeben wird
+                .doOnError(ex -> cache.refreshFailed(fussballvereinId))
+                .doFinally(signal -> refreshing.remove(fussballvereinId))
+                .subscribe(
+                    fussballvereine -> { },
+                    ex -> log.warn("cached: Aktualisierung fehlgeschlagen: {}", ex.getMessage())
+                );
+        }
+        return eintrag.fussballverein();
+    }
+
+    /**
+     * IDs remote suchen, die nicht im Cache sind. Für IDs, zu denen bereits ein Request läuft, wird kein weiterer
+     * Request gesendet, sondern das Ergebnis des laufenden Requests verwendet. Die übrigen IDs werden zuerst je ID als
+     * laufend registriert und erst danach in Batches abgefragt, so dass jeder Batch nur die IDs enthält, die dieser
+     * Aufruf registriert hat.
+     *
+     * @param fussballvereinIds Die paarweise verschiedenen IDs, die nicht im Cache sind.
+     * @return Mono mit einer Map der gefundenen Fussballvereine
+     */
+    private Mono<Map<UUID, Fussballverein>> load(final List<UUID> fussballvereinIds) {
+        return Mono.defer(() -> {
+            // kein Batch wird gesendet, bevor alle IDs registriert sind
+            final Sinks.Empty<Void> registriert = Sinks.empty();
+            final Map<UUID, Mono<Optional<Fussballverein>>> requests = new HashMap<>();
+            Map<UUID, Mono<Optional<Fussballverein>>> batch = new LinkedHashMap<>();
+            var batchRequest = batchRequest(batch, registriert);
+            var angehaengt = 0;
+            for (final var id : fussballvereinIds) {
+                if (batch.size() == BATCH_SIZE) {
+                    batch = new LinkedHashMap<>();
+                    batchRequest = batchRequest(batch, registriert);
+                }
+                final var request = batchRequest.map(fussballvereine -> Optional.ofNullable(fussballvereine.get(id)));
+                final var laufend = inFlight.putIfAbsent(id, request);
+                if (laufend == null) {
+                    batch.put(id, request);
+                    requests.put(id, request);
+                } else {
+                    requests.put(id, laufend);
+                    angehaengt++;
                 }
             }
-            """.formatted(fussballvereinId);
-
-        final String email;
-        try {
-            email = graphQlClient.document(query)
-                .retrieve("fussballverein")
-                .toEntity(EmailEntity.class)
-                .map(EmailEntity::email)
-                .block();
-        } catch (final FieldAccessException ex) {
-            log.warn("findEmailById: {}", ex.getClass().getSimpleName());
-            return Optional.empty();
-        } catch (final GraphQlTransportException ex) {
-            log.warn("findEmailById: {}", ex.getClass().getSimpleName());
-            throw new FussballvereinServiceException(ex);
+            registriert.tryEmitEmpty();
+
+            lookups.increment(fussballvereinIds.size());
+            coalesced.increment(angehaengt);
+            log.debug("load: {} IDs, davon {} angehaengt", fussballvereinIds.size(), angehaengt);
+
+            return Flux.fromIterable(requests.entrySet())
+                .flatMap(
+                    entry -> entry.getValue()
+                        .flatMap(Mono::justOrEmpty)
+                        .map(fussballverein -> Map.entry(entry.getKey(), fussballverein)),
+                    BATCH_SIZE * MAX_CONCURRENCY
+                )
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, HashMap::new);
+        });
+    }
+
+    /**
+     * Einen Batch erst nach der Registrierung aller IDs abfragen. Nach dem Request werden nur die eigenen
+     * Registrierungen entfernt, nicht die eines späteren Requests für dieselbe ID.
+     *
+     * @param batch Die registrierten IDs mit ihren Requests, wird bis zur Registrierung noch befüllt
+     * @param registriert Signal, dass alle IDs registriert sind
+     * @return Mono mit einer Map der gefundenen Fussballvereine, das den Request höchstens einmal sendet
+     */
+    private Mono<Map<UUID, Fussballverein>> batchRequest(
+        final Map<UUID, Mono<Optional<Fussballverein>>> batch,
+        final Sinks.Empty<Void> registriert
+    ) {
+        return registriert.asMono()
+            .then(Mono.defer(() -> query(List.copyOf(batch.keySet()))))
+            .doFinally(signal -> batch.forEach(inFlight::remove))
+            .cache();
+    }
+
+    private double coalescingRatio() {
+        final var anzahl = lookups.count();
+        return anzahl == 0 ? 0 : coalesced.count() / anzahl;
+    }
+
+    private Mono<Map<UUID, Fussballverein>> query(final List<UUID> fussballvereinIds) {
+        final var dokument = dokumente.computeIfAbsent(fussballvereinIds.size(), FussballvereinRepository::dokument);
+        final Map<String, Object> variables = new HashMap<>();
+        for (var i = 0; i < fussballvereinIds.size(); i++) {
+            variables.put(VARIABLE_PREFIX + i, fussballvereinIds.get(i).toString());
+        }
+
+        // Bulkhead je Request: ein abgewiesener Request zaehlt nicht fuer den Circuit Breaker, ein Timeout dagegen
+        // schon
+        final var request = Mono.defer(() -> {
+            final var start = System.nanoTime();
+            return graphQlClient.document(dokument)
+                .variables(variables)
+                .execute()
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .doOnNext(response -> hedging.record(System.nanoTime() - start));
+        });
+        return hedged(request)
+            .timeout(deadline)
+            .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+            .map(response -> toFussballvereine(response, fussballvereinIds))
+            .onErrorMap(GraphQlTransportException.class, ex -> {
+                log.warn("query: {}", ex.getClass().getSimpleName());
+                return new FussballvereinServiceException(ex);
+            })
+            .onErrorMap(ex -> !(ex instanceof FussballvereinServiceException), ex -> {
+                // TimeoutException, BulkheadFullException oder CallNotPermittedException
+                log.warn("query: {}", ex.getClass().getSimpleName());
+                return new FussballvereinServiceException(ex);
+            });
+    }
+
+    /**
+     * Einen Request ggf. als Hedged Request senden: liegt nach der Wartezeit der {@link HedgingPolicy} noch keine
+     * Antwort vor und ist das Budget nicht ausgeschöpft, wird derselbe Request ein zweites Mal gesendet. Die erste
+     * Antwort wird verwendet und der andere Request abgebrochen. Ein Fehler beim zweiten Request wird ignoriert.
+     *
+     * @param request Der Request, der bei jeder Subscription erneut gesendet wird
+     * @return Mono mit der ersten Antwort
+     */
+    private Mono<ClientGraphQlResponse> hedged(final Mono<ClientGraphQlResponse> request) {
+        if (!hedging.isEnabled()) {
+            return request;
+        }
+        return Mono.defer(() -> {
+            hedging.requestSent();
+            final var delay = hedging.delay();
+            if (delay == null) {
+                return request;
+            }
+            final var hedge = Mono.delay(delay)
+                .filter(tick -> hedging.tryAcquire())
+                .flatMap(tick -> {
+                    log.debug("hedged: zusaetzlicher Request nach {} ms", delay.toMillis());
+                    hedgesSent.increment();
+                    return request.doOnNext(response -> hedgesWon.increment());
+                })
+                .onErrorResume(ex -> Mono.empty())
+                // ohne zweiten Request entscheidet allein der erste Request
+                .switchIfEmpty(Mono.never());
+            return Mono.firstWithSignal(request, hedge);
+        });
+    }
+
+    private Map<UUID, Fussballverein> toFussballvereine(
+        final ClientGraphQlResponse response,
+        final List<UUID> fussballvereinIds
+    ) {
+        if (!response.isValid()) {
+            // z.B. Syntax- oder Validierungsfehler: es wurde kein Feld ausgefuehrt
+            log.warn("toFussballvereine: ungueltige Antwort {}", response.getErrors());
+            throw new FussballvereinServiceException("Ungueltige GraphQL-Antwort: " + response.getErrors());
+        }
+        final Map<UUID, Fussballverein> fussballvereine = new HashMap<>();
+        for (var i = 0; i < fussballvereinIds.size(); i++) {
+            final var field = response.field(ALIAS_PREFIX + i);
+            final var errors = field.getErrors();
+            if (!errors.stream().allMatch(FussballvereinRepository::isNotFound)) {
+                // z.B. INTERNAL_ERROR: kein "nicht gefunden", sondern ein Fehler im Microservice "fussballverein"
+                log.warn("toFussballvereine: Fehler fuer {}: {}", fussballvereinIds.get(i), errors);
+                throw new FussballvereinServiceException("Fehler fuer " + fussballvereinIds.get(i) + ": " + errors);
+            }
+            if (field.getValue() == null) {
+                // nicht gefunden: FieldAccessException bei toEntity() vermeiden
+                log.warn("toFussballvereine: {} nicht gefunden", fussballvereinIds.get(i));
+                cache.putNotFound(fussballvereinIds.get(i));
+                continue;
+            }
+            final var fussballverein = field.toEntity(Fussballverein.class);
+            cache.put(fussballvereinIds.get(i), fussballverein);
+            fussballvereine.put(fussballvereinIds.get(i), fussballverein);
         }
+        log.debug("toFussballvereine: {}", fussballvereine);
+        return fussballvereine;
+    }
+
+    private static boolean isNotFound(final ResponseError error) {
+        return ErrorType.NOT_FOUND.name().equals(error.getExtensions().get("classification"));
+    }
 
-        log.debug("findEmailById: {}", email);
-        return Optional.ofNullable(email);
+    private static String dokument(final int anzahl) {
+        final var variablen = IntStream.range(0, anzahl)
+            .mapToObj(i -> '$' + VARIABLE_PREFIX + i + ": ID!")
+            .collect(Collectors.joining(", "));
+        final var felder = IntStream.range(0, anzahl)
+            .mapToObj(i -> "    %s%d: fussballverein(id: $%s%d) { vereinsname email }"
+                .formatted(ALIAS_PREFIX, i, VARIABLE_PREFIX, i))
+            .collect(Collectors.joining("\n"));
+        return "query fussballvereine(" + variablen + ") {\n" + felder + "\n}\n";
     }
 }
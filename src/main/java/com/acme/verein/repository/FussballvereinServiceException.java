@@ -31,12 +31,36 @@ public class FussballvereinServiceException extends RuntimeException {
     private final GraphQlTransportException graphQlException;
 
     FussballvereinServiceException(final WebClientException restException) {
+        super(restException);
         this.restException = restException;
         graphQlException = null;
     }
 
     FussballvereinServiceException(final GraphQlTransportException graphQlException) {
+        super(graphQlException);
         restException = null;
         this.graphQlException = graphQlException;
     }
+
+    /**
+     * Exception, falls die GraphQL-Antwort Fehler enthält, die nicht "nicht gefunden" bedeuten.
+     *
+     * @param message Meldung mit den Fehlern aus der GraphQL-Antwort
+     */
+    FussballvereinServiceException(final String message) {
+        super(message);
+        restException = null;
+        graphQlException = null;
+    }
+
+    /**
+     * Exception, falls der Aufruf wegen Timeout, vollem Bulkhead oder offenem Circuit Breaker nicht erfolgreich war.
+     *
+     * @param cause z.B. TimeoutException, BulkheadFullException oder CallNotPermittedException
+     */
+    FussballvereinServiceException(final Throwable cause) {
+        super(cause);
+        restException = null;
+        graphQlException = null;
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wartezeit und Budget für Hedged Requests. Die Wartezeit ist das konfigurierte Perzentil der letzten
+ * {@value #SAMPLES} Antwortzeiten, mindestens aber die konfigurierte minimale Wartezeit. Das Perzentil wird nach je
+ * {@value #UPDATE_INTERVAL} Antwortzeiten neu berechnet, so dass {@link #delay()} je Request nur ein Feld liest. Das
+ * Budget begrenzt die zusätzlichen Requests auf einen Anteil aller Requests.
+ */
+@Slf4j
+final class HedgingPolicy {
+    /**
+     * Anzahl der Antwortzeiten, aus denen das Perzentil berechnet wird.
+     */
+    static final int SAMPLES = 1_000;
+
+    /**
+     * Mindestanzahl an Antwortzeiten, bevor Hedged Requests gesendet werden.
+     */
+    static final int MIN_SAMPLES = 100;
+
+    /**
+     * Anzahl an Antwortzeiten, nach denen das Perzentil neu berechnet wird.
+     */
+    static final int UPDATE_INTERVAL = MIN_SAMPLES;
+
+    private final FussballvereinProps.Hedging props;
+    private final long[] latencies = new long[SAMPLES];
+    private int next;
+    private int count;
+    private long recorded;
+    @Nullable
+    private volatile Duration delay;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    HedgingPolicy(final FussballvereinProps.Hedging props) {
+        log.info("HedgingPolicy: {}", props);
+        this.props = props;
+    }
+
+    boolean isEnabled() {
+        return props.enabled();
+    }
+
+    /**
+     * Einen Request für das Budget zählen.
+     */
+    void requestSent() {
+        requests.incrementAndGet();
+    }
+
+    /**
+     * Die Antwortzeit eines erfolgreichen Requests speichern.
+     *
+     * @param latency Antwortzeit in Nanosekunden
+     */
+    synchronized void record(final long latency) {
+        latencies[next] = latency;
+        next = (next + 1) % SAMPLES;
+        if (count < SAMPLES) {
+            count++;
+        }
+        recorded++;
+        if (count >= MIN_SAMPLES && recorded % UPDATE_INTERVAL == 0) {
+            delay = berechneDelay();
+        }
+    }
+
+    /**
+     * Die Wartezeit bis zum zweiten Request ermitteln.
+     *
+     * @return Die zuletzt berechnete Wartezeit oder null, solange es noch zu wenige Antwortzeiten gibt
+     */
+    @Nullable
+    Duration delay() {
+        return delay;
+    }
+
+    // Aufruf nur in record(), d.h. synchronized
+    private Duration berechneDelay() {
+        final var sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        final var index = (int) Math.ceil(props.percentile() * sorted.length) - 1;
+        final var percentile = Duration.ofNanos(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+        return percentile.compareTo(props.minDelay()) < 0 ? props.minDelay() : percentile;
+    }
+
+    /**
+     * Prüfen, ob ein zusätzlicher Request noch im Budget ist, und ihn ggf. zählen.
+     *
+     * @return true, falls der zusätzliche Request gesendet werden darf
+     */
+    boolean tryAcquire() {
+        while (true) {
+            final var gesendet = hedges.get();
+            if ((gesendet + 1) * 100 > props.budgetPercent() * requests.get()) {
+                return false;
+            }
+            if (hedges.compareAndSet(gesendet, gesendet + 1)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Adresse_;
+import com.acme.verein.entity.Umsatz_;
+import com.acme.verein.entity.Verein;
+import com.acme.verein.entity.Verein_;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.SingularAttribute;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Singleton-Klasse, um Suchkriterien in eine {@link Specification} für Vereine umzuwandeln. Alle Suchkriterien
+ * werden mit AND verknüpft und ergeben zusammen eine WHERE-Klausel, so dass die DB ihre Indexe verwenden kann:
+ * Präfixe für Emailadresse, Postleitzahl und Ort statt Teilstrings, Vergleiche mit Konstanten statt Funktionsaufrufen.
+ * Die Indexe gibt es nur bei MySQL, siehe db/migration/mysql. Die Suchkriterien kommen von der REST- und der
+ * GraphQL-Schnittstelle.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Component
+@Slf4j
+public class SpecBuilder {
+    /**
+     * Suchkriterium für einen Teilstring im Namen.
+     */
+    public static final String NAME = "name";
+
+    /**
+     * Suchkriterium für ein Präfix der Emailadresse.
+     */
+    public static final String EMAIL = "email";
+
+    /**
+     * Suchkriterium für ein Präfix der Postleitzahl.
+     */
+    public static final String PLZ = "plz";
+
+    /**
+     * Suchkriterium für ein Präfix des Orts.
+     */
+    public static final String ORT = "ort";
+
+    /**
+     * Suchkriterium für das früheste Gründungsdatum im Format <code>yyyy-MM-dd</code>.
+     */
+    public static final String GRUENDUNGSDATUM_VON = "gruendungsdatumVon";
+
+    /**
+     * Suchkriterium für das späteste Gründungsdatum im Format <code>yyyy-MM-dd</code>.
+     */
+    public static final String GRUENDUNGSDATUM_BIS = "gruendungsdatumBis";
+
+    /**
+     * Suchkriterium für den minimalen Betrag des Umsatzes.
+     */
+    public static final String UMSATZ_MIN = "umsatzMin";
+
+    /**
+     * Suchkriterium für den maximalen Betrag des Umsatzes.
+     */
+    public static final String UMSATZ_MAX = "umsatzMax";
+
+    /**
+     * Suchkriterium für die ID des Fussballvereins.
+     */
+    public static final String FUSSBALLVEREIN_ID = "fussballvereinId";
+
+    /**
+     * Zeichen, mit dem '%', '_' und '!' in LIKE-Ausdrücken durch {@link #escape} maskiert werden, auch bei
+     * {@link VereinRepository#findByEmail}.
+     */
+    private static final char ESCAPE = '!';
+
+    /**
+     * Specification für einen Query mit den Suchkriterien bauen.
+     *
+     * @param suchkriterien Die Suchkriterien mit jeweils genau einem Wert.
+     * @return Leeres Optional, falls es keine Suchkriterien gibt, ein Suchkriterium unbekannt ist oder einen
+     *     ungültigen Wert hat, sonst ein Optional mit der Specification.
+     */
+    public Optional<Specification<Verein>> build(final Map<String, ? extends List<String>> suchkriterien) {
+        log.debug("build: suchkriterien={}", suchkriterien);
+        if (suchkriterien.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Specification<Verein> spec = null;
+        for (final var entry : suchkriterien.entrySet()) {
+            final var werte = entry.getValue();
+            if (werte == null || werte.size() != 1) {
+                log.debug("build: ungueltige Werte {} fuer {}", werte, entry.getKey());
+                return Optional.empty();
+            }
+            final var specKriterium = toSpec(entry.getKey(), werte.get(0));
+            if (specKriterium == null) {
+                return Optional.empty();
+            }
+            spec = spec == null ? specKriterium : spec.and(specKriterium);
+        }
+        return Optional.of(spec);
+    }
+
+    /**
+     * Specification für Vereine mit den gegebenen IDs, z.B. für die Treffer aus einem Suchindex.
+     *
+     * @param ids Die IDs der gesuchten Vereine
+     * @return Specification mit <code>id IN (...)</code>
+     */
+    public static Specification<Verein> idIn(final Collection<UUID> ids) {
+        return (root, query, builder) -> root.get(Verein_.id).in(ids);
+    }
+
+    /**
+     * Specification für Vereine nach einer ID, d.h. die Position für "Keyset Pagination" sortiert nach der ID.
+     *
+     * @param id Die ID des letzten Vereins der vorherigen Seite
+     * @return Specification mit <code>id &gt; ...</code>
+     */
+    public static Specification<Verein> nachId(final UUID id) {
+        return (root, query, builder) -> builder.greaterThan(root.get(Verein_.id), id);
+    }
+
+    @Nullable
+    @SuppressWarnings("CyclomaticComplexity")
+    private Specification<Verein> toSpec(final String key, final String value) {
+        try {
+            return switch (key) {
+                case NAME -> name(value);
+                case EMAIL -> email(value);
+                case PLZ -> plz(value);
+                case ORT -> ort(value);
+                case GRUENDUNGSDATUM_VON -> gruendungsdatumVon(LocalDate.parse(value));
+                case GRUENDUNGSDATUM_BIS -> gruendungsdatumBis(LocalDate.parse(value));
+                case UMSATZ_MIN -> umsatzMin(new BigDecimal(value));
+                case UMSATZ_MAX -> umsatzMax(new BigDecimal(value));
+                case FUSSBALLVEREIN_ID -> fussballvereinId(UUID.fromString(value));
+                default -> {
+                    log.debug("toSpec: unbekanntes Suchkriterium {}", key);
+                    yield null;
+                }
+            };
+        } catch (final IllegalArgumentException | DateTimeException ex) {
+            log.debug("toSpec: ungueltiger Wert {} fuer {}: {}", value, key, ex.getMessage());
+            return null;
+        }
+    }
+
+    // Teilstring: ohne Index, aber mit idIn() aus einem Suchindex kombinierbar
+    private Specification<Verein> name(final String teil) {
+        return (root, query, builder) -> builder.like(
+            builder.lower(root.get(Verein_.name)),
+            '%' + escape(teil.toLowerCase(Locale.ROOT)) + '%',
+            ESCAPE
+        );
+    }
+
+    // Praefix der normalisierten Emailadresse: Index verein_email_normalized_idx
+    private Specification<Verein> email(final String prefix) {
+        return (root, query, builder) -> builder.like(
+            root.get(Verein_.emailNormalized),
+            escape(Verein.normalizeEmail(prefix)) + '%',
+            ESCAPE
+        );
+    }
+
+    // Praefix der Postleitzahl: Index adresse_plz_idx
+    private Specification<Verein> plz(final String prefix) {
+        return (root, query, builder) -> builder.like(
+            join(root, Verein_.adresse).get(Adresse_.plz),
+            escape(prefix) + '%',
+            ESCAPE
+        );
+    }
+
+    // Praefix des Orts: Index adresse_ort_idx, deshalb ohne lower(). Gross- und Kleinschreibung werden nur durch
+    // die Collation utf8mb4_0900_ai_ci der Spalte ignoriert, die V1.3__Suchkriterien_Index.sql fuer MySQL setzt; bei
+    // einer Collation, die Gross- und Kleinschreibung unterscheidet, muss das Praefix exakt passen.
+    private Specification<Verein> ort(final String prefix) {
+        return (root, query, builder) -> builder.like(
+            join(root, Verein_.adresse).get(Adresse_.ort),
+            escape(prefix) + '%',
+            ESCAPE
+        );
+    }
+
+    // Bereichssuche: Index verein_gruendungsdatum_idx
+    private Specification<Verein> gruendungsdatumVon(final LocalDate von) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get(Verein_.gruendungsdatum), von);
+    }
+
+    private Specification<Verein> gruendungsdatumBis(final LocalDate bis) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get(Verein_.gruendungsdatum), bis);
+    }
+
+    // Bereichssuche: Index umsatz_betrag_idx
+    private Specification<Verein> umsatzMin(final BigDecimal min) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(
+            join(root, Verein_.umsatz).get(Umsatz_.betrag),
+            min
+        );
+    }
+
+    private Specification<Verein> umsatzMax(final BigDecimal max) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(
+            join(root, Verein_.umsatz).get(Umsatz_.betrag),
+            max
+        );
+    }
+
+    // Index verein_fussballverein_id_idx
+    private Specification<Verein> fussballvereinId(final UUID fussballvereinId) {
+        return (root, query, builder) -> builder.equal(root.get(Verein_.fussballvereinId), fussballvereinId);
+    }
+
+    // Join wiederverwenden, falls z.B. PLZ und Ort gesucht werden
+    @SuppressWarnings("unchecked")
+    private static <T> Join<Verein, T> join(final Root<Verein> root, final SingularAttribute<Verein, T> attribute) {
+        return root.getJoins()
+            .stream()
+            .filter(join -> join.getAttribute().equals(attribute))
+            .map(join -> (Join<Verein, T>) join)
+            .findFirst()
+            .orElseGet(() -> root.join(attribute));
+    }
+
+    /**
+     * '%', '_' und '!' für einen LIKE-Ausdruck mit <code>ESCAPE '!'</code> maskieren, damit sie nicht als
+     * Platzhalter interpretiert werden.
+     *
+     * @param value Der Suchbegriff
+     * @return Der maskierte Suchbegriff
+     */
+    static String escape(final String value) {
+        return value
+            .replace("!", "!!")
+            .replace("%", "!%")
+            .replace("_", "!_");
+    }
+}
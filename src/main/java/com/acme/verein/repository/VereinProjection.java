@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Adresse;
+import com.acme.verein.entity.Verein;
+
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Projektion eines Vereins auf die Spalten, die für Listen benötigt werden. Projektionen werden mit einem
+ * Konstruktor-Ausdruck in JPQL erzeugt und sind keine Entities, d.h. es gibt weder Snapshots für Dirty Checking noch
+ * Einträge im Persistenzkontext.
+ *
+ * @param id Die ID des Vereins
+ * @param version Die Versionsnummer des Vereins
+ * @param name Der Name des Vereins
+ * @param email Die Emailadresse des Vereins
+ * @param gruendungsdatum Das Gründungsdatum des Vereins
+ * @param homepage Die Homepage des Vereins
+ * @param plz Die Postleitzahl der Adresse
+ * @param ort Der Ort der Adresse
+ * @param fussballvereinId Die ID des Fussballvereins
+ */
+@SuppressWarnings("RecordComponentNumber")
+public record VereinProjection(
+    UUID id,
+    int version,
+    String name,
+    String email,
+    LocalDate gruendungsdatum,
+    URL homepage,
+    String plz,
+    String ort,
+    UUID fussballvereinId
+) {
+    /**
+     * Konvertierung in ein nicht-verwaltetes Vereinobjekt, z.B. für das Anreichern mit Fussballvereindaten.
+     *
+     * @return Vereinobjekt ohne Umsatz, das nicht im Persistenzkontext ist
+     */
+    public Verein toVerein() {
+        final var adresse = plz == null && ort == null
+            ? null
+            : Adresse.builder().plz(plz).ort(ort).build();
+        return Verein.builder()
+            .id(id)
+            .version(version)
+            .name(name)
+            .email(email)
+            .gruendungsdatum(gruendungsdatum)
+            .homepage(homepage)
+            .adresse(adresse)
+            .fussballvereinId(fussballvereinId)
+            .build();
+    }
+}
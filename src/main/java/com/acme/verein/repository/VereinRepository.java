@@ -22,70 +22,235 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
+import static com.acme.verein.entity.Verein.ADRESSE_GRAPH;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 /**
  * Repository für den DB-Zugriff bei Vereine.
  *
  */
 @Repository
-public interface VereinRepository extends JpaRepository<Verein, UUID>, JpaSpecificationExecutor<Verein> {
-    @EntityGraph(attributePaths = "adresse")
+public interface VereinRepository
+    extends JpaRepository<Verein, UUID>, JpaSpecificationExecutor<Verein>, VereinSliceRepository {
+    /**
+     * Anzahl der Zeilen, die beim Export je Roundtrip vom JDBC-Treiber gelesen werden.
+     */
+    int EXPORT_FETCH_SIZE = 500;
+
+    @EntityGraph(ADRESSE_GRAPH)
     @Override
     List<Verein> findAll();
 
-    @EntityGraph(attributePaths = "adresse")
+    @EntityGraph(ADRESSE_GRAPH)
     @Override
     Optional<Verein> findById(UUID id);
 
+    @EntityGraph(ADRESSE_GRAPH)
+    @Override
+    List<Verein> findAll(Specification<Verein> spec, Sort sort);
+
     /**
-     * Verein zu gegebener Emailadresse aus der DB ermitteln.
+     * Nur die Versionsnummer eines Vereins ermitteln, z.B. für bedingte GET-Requests mit "If-None-Match". Es wird
+     * weder eine Entity erzeugt noch die Adresse gelesen.
      *
-     * @param email Emailadresse für die Suche
+     * @param id Die ID des Vereins
+     * @return Optional mit der Versionsnummer oder leeres Optional, falls es keinen Verein mit der ID gibt
+     */
+    @Query("""
+        SELECT v.version
+        FROM   Verein v
+        WHERE  v.id = :id
+        """)
+    Optional<Integer> findVersionById(UUID id);
+
+    /**
+     * Die erste Seite von Vereinen sortiert nach der ID ermitteln ("Keyset Pagination"). Es wird weder ein OFFSET
+     * noch eine COUNT-Abfrage verwendet, sondern nur der Index bis zur Seitengröße gelesen. Es werden nur die Spalten
+     * für Listen als {@link VereinProjection} gelesen.
+     *
+     * @param pageable Die Seitengröße, z.B. <code>PageRequest.ofSize(20)</code>
+     * @return Die Projektionen der Vereine der Seite und ob es weitere Vereine gibt
+     */
+    @Query("""
+        SELECT   new com.acme.verein.repository.VereinProjection(
+                     v.id, v.version, v.name, v.email, v.gruendungsdatum, v.homepage, a.plz, a.ort, v.fussballvereinId
+                 )
+        FROM     Verein v LEFT JOIN v.adresse a
+        ORDER BY v.id
+        """)
+    Slice<VereinProjection> findSliceOrderById(Pageable pageable);
+
+    /**
+     * Die nächste Seite von Vereinen sortiert nach der ID ermitteln ("Keyset Pagination").
+     *
+     * @param id Die ID des letzten Vereins der vorherigen Seite
+     * @param pageable Die Seitengröße
+     * @return Die Projektionen der Vereine der Seite und ob es weitere Vereine gibt
+     */
+    @Query("""
+        SELECT   new com.acme.verein.repository.VereinProjection(
+                     v.id, v.version, v.name, v.email, v.gruendungsdatum, v.homepage, a.plz, a.ort, v.fussballvereinId
+                 )
+        FROM     Verein v LEFT JOIN v.adresse a
+        WHERE    v.id > :id
+        ORDER BY v.id
+        """)
+    Slice<VereinProjection> findSliceAfterId(UUID id, Pageable pageable);
+
+    /**
+     * Die erste Seite von Vereinen sortiert nach Name und ID ermitteln ("Keyset Pagination").
+     *
+     * @param pageable Die Seitengröße
+     * @return Die Projektionen der Vereine der Seite und ob es weitere Vereine gibt
+     */
+    @Query("""
+        SELECT   new com.acme.verein.repository.VereinProjection(
+                     v.id, v.version, v.name, v.email, v.gruendungsdatum, v.homepage, a.plz, a.ort, v.fussballvereinId
+                 )
+        FROM     Verein v LEFT JOIN v.adresse a
+        ORDER BY v.name, v.id
+        """)
+    Slice<VereinProjection> findSliceOrderByNameAndId(Pageable pageable);
+
+    /**
+     * Die nächste Seite von Vereinen sortiert nach Name und ID ermitteln ("Keyset Pagination").
+     *
+     * @param name Der Name des letzten Vereins der vorherigen Seite
+     * @param id Die ID des letzten Vereins der vorherigen Seite
+     * @param pageable Die Seitengröße
+     * @return Die Projektionen der Vereine der Seite und ob es weitere Vereine gibt
+     */
+    @Query("""
+        SELECT   new com.acme.verein.repository.VereinProjection(
+                     v.id, v.version, v.name, v.email, v.gruendungsdatum, v.homepage, a.plz, a.ort, v.fussballvereinId
+                 )
+        FROM     Verein v LEFT JOIN v.adresse a
+        WHERE    v.name > :name OR (v.name = :name AND v.id > :id)
+        ORDER BY v.name, v.id
+        """)
+    Slice<VereinProjection> findSliceAfterNameAndId(String name, UUID id, Pageable pageable);
+
+    /**
+     * Alle Vereine sortiert nach der ID als Stream für einen Export ermitteln. Die Datensätze werden in Blöcken von
+     * {@value #EXPORT_FETCH_SIZE} Zeilen vom JDBC-Treiber gelesen, nicht für Dirty Checking vorgehalten und nicht in
+     * den 2nd-Level-Cache geschrieben, damit ein Export die häufig gelesenen Vereine nicht verdrängt. Der Stream muss
+     * innerhalb einer Transaktion verarbeitet und geschlossen werden. Bei MySQL ist dafür
+     * <code>useCursorFetch=true</code> in der JDBC-URL erforderlich.
+     *
+     * @return Stream mit allen Vereinen
+     */
+    @Query("""
+        SELECT   v
+        FROM     Verein v
+        ORDER BY v.id
+        """)
+    @EntityGraph(ADRESSE_GRAPH)
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+        @QueryHint(name = HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")
+    })
+    Stream<Verein> streamAll();
+
+    /**
+     * Verein zu gegebener Emailadresse bzw. zu einem Präfix der Emailadresse ohne Berücksichtigung der
+     * Groß-/Kleinschreibung aus der DB ermitteln.
+     *
+     * @param email Emailadresse für die Suche oder null
+     * @return Optional mit dem gefundenen Verein oder leeres Optional, insbesondere bei null oder einem Leerstring
+     */
+    default Optional<Verein> findByEmail(@Nullable final String email) {
+        // ein leerer Praefix wuerde einen beliebigen Verein liefern
+        if (email == null || email.isBlank()) {
+            return Optional.empty();
+        }
+        return findByEmailNormalizedPrefix(SpecBuilder.escape(Verein.normalizeEmail(email)));
+    }
+
+    /**
+     * Verein zu einem Präfix der normalisierten Emailadresse ermitteln. Ohne Funktionsaufruf auf der Spalte und mit
+     * festem Präfix kann die DB den Index verein_email_normalized_idx mit einem "Range Scan" verwenden.
+     *
+     * @param prefix Normalisierter Präfix, bei dem "%", "_" und "!" mit "!" maskiert sind
      * @return Optional mit dem gefundenen Verein oder leeres Optional
      */
     @Query("""
         SELECT v
         FROM   Verein v
-        WHERE  lower(v.email) LIKE concat(lower(:email), '%')
+        WHERE  v.emailNormalized LIKE concat(:prefix, '%') ESCAPE '!'
         """)
-    @EntityGraph
-    Optional<Verein> findByEmail(String email);
+    @EntityGraph(ADRESSE_GRAPH)
+    Optional<Verein> findByEmailNormalizedPrefix(String prefix);
 
     /**
-     * Abfrage, ob es einen Verein mit gegebener Emailadresse gibt.
+     * Abfrage, ob es einen Verein mit gegebener Emailadresse ohne Berücksichtigung der Groß-/Kleinschreibung gibt.
      *
      * @param email Emailadresse für die Suche
      * @return true, falls es einen solchen Verein gibt, sonst false
      */
     @SuppressWarnings("BooleanMethodNameMustStartWithQuestion")
-    boolean existsByEmail(String email);
+    default boolean existsByEmail(final String email) {
+        return existsByEmailNormalized(Verein.normalizeEmail(email));
+    }
 
     /**
-     * Verein anhand des Namens suchen.
+     * Abfrage, ob es einen Verein mit gegebener normalisierter Emailadresse gibt.
      *
-     * @param name Der (Teil-) Name der gesuchten Vereine
-     * @return Die gefundenen Vereine oder eine leere Collection
+     * @param emailNormalized Emailadresse in Kleinbuchstaben
+     * @return true, falls es einen solchen Verein gibt, sonst false
+     */
+    @SuppressWarnings("BooleanMethodNameMustStartWithQuestion")
+    boolean existsByEmailNormalized(String emailNormalized);
+
+    /**
+     * ID und Name aller Vereine als Stream für den Aufbau eines Suchindex ermitteln.
+     *
+     * @return Stream mit ID und Name aller Vereine
      */
     @Query("""
-        SELECT   v
-        FROM     Verein v
-        WHERE    lower(v.name) LIKE concat('%', lower(:name), '%')
-        ORDER BY v.id
+        SELECT new com.acme.verein.repository.VereinName(v.id, v.name)
+        FROM   Verein v
+        """)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    Stream<VereinName> streamNamen();
+
+    /**
+     * Die Umsätze zu mehreren Vereinen mit einem SELECT ermitteln, z.B. für das GraphQL-Feld "umsatz" aller Vereine
+     * einer Response.
+     *
+     * @param ids Die IDs der Vereine
+     * @return Die Umsätze mit der ID ihres Vereins; Vereine ohne Umsatz sind nicht enthalten
+     */
+    @Query("""
+        SELECT new com.acme.verein.repository.VereinUmsatz(v.id, u)
+        FROM   Verein v JOIN v.umsatz u
+        WHERE  v.id IN :ids
         """)
-    @EntityGraph
-    Collection<Verein> findByName(CharSequence name);
+    List<VereinUmsatz> findUmsaetze(Collection<UUID> ids);
 
     /**
      * Abfrage, welche Namen es zu einem Präfix gibt.
      *
      * @param prefix Name-Präfix.
-     * @return Die passenden Namen oder eine leere Collection.
+     * @param pageable Maximale Anzahl an Namen
+     * @return Die passenden Namen oder eine leere Liste.
      */
     @Query("""
         SELECT DISTINCT v.name
@@ -93,14 +258,57 @@ public interface VereinRepository extends JpaRepository<Verein, UUID>, JpaSpecif
         WHERE    lower(v.name) LIKE concat(lower(:prefix), '%')
         ORDER BY v.name
         """)
-    Collection<String> findNamenByPrefix(String prefix);
+    List<String> findNamenByPrefix(String prefix, Pageable pageable);
 
     /**
-     * Bestellungen zu gegebener FussballvereinId aus der DB ermitteln.
+     * Vereine zu gegebener FussballvereinId als Entities mit Adresse ermitteln. Nur als Vergleichsbasis für
+     * {@link #findProjectionsByFussballvereinId} in VereinProjectionBenchmarkTest, die Anwendung liest Listen als
+     * Projektionen.
      *
      * @param fussballvereinId Fussballverein-Id für die Suche
-     * @return Liste der gefundenen vereine
+     * @return Liste der gefundenen Vereine
      */
-    @EntityGraph(attributePaths = "vereinpositionen")
+    @EntityGraph(ADRESSE_GRAPH)
     List<Verein> findByFussballvereinId(UUID fussballvereinId);
+
+    /**
+     * Die erste Seite von Vereinen zu gegebener FussballvereinId sortiert nach der ID ermitteln und nur die Spalten
+     * für Listen lesen.
+     *
+     * @param fussballvereinId Fussballverein-Id für die Suche
+     * @param pageable Die Seitengröße
+     * @return Die Projektionen der gefundenen Vereine und ob es eine weitere Seite gibt
+     */
+    @Query("""
+        SELECT   new com.acme.verein.repository.VereinProjection(
+                     v.id, v.version, v.name, v.email, v.gruendungsdatum, v.homepage, a.plz, a.ort, v.fussballvereinId
+                 )
+        FROM     Verein v LEFT JOIN v.adresse a
+        WHERE    v.fussballvereinId = :fussballvereinId
+        ORDER BY v.id
+        """)
+    Slice<VereinProjection> findProjectionsByFussballvereinId(UUID fussballvereinId, Pageable pageable);
+
+    /**
+     * Die Seite von Vereinen zu gegebener FussballvereinId nach einer ID ermitteln, siehe
+     * {@link #findProjectionsByFussballvereinId}.
+     *
+     * @param fussballvereinId Fussballverein-Id für die Suche
+     * @param id Die ID des letzten Vereins der vorherigen Seite
+     * @param pageable Die Seitengröße
+     * @return Die Projektionen der gefundenen Vereine und ob es eine weitere Seite gibt
+     */
+    @Query("""
+        SELECT   new com.acme.verein.repository.VereinProjection(
+                     v.id, v.version, v.name, v.email, v.gruendungsdatum, v.homepage, a.plz, a.ort, v.fussballvereinId
+                 )
+        FROM     Verein v LEFT JOIN v.adresse a
+        WHERE    v.fussballvereinId = :fussballvereinId AND v.id > :id
+        ORDER BY v.id
+        """)
+    Slice<VereinProjection> findProjectionsByFussballvereinIdAfterId(
+        UUID fussballvereinId,
+        UUID id,
+        Pageable pageable
+    );
 }
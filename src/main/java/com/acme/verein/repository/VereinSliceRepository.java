@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Verein;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Fragment für {@link VereinRepository}, um Vereine zu einer {@link Specification} seitenweise ohne zusätzliches
+ * SELECT COUNT(*) zu lesen, z.B. für "Keyset Pagination" mit Suchkriterien.
+ */
+public interface VereinSliceRepository {
+    /**
+     * Die ersten Vereine zu einer Specification mit ihrer Adresse ermitteln. Es wird ein Verein mehr gelesen, um
+     * festzustellen, ob es weitere Vereine gibt.
+     *
+     * @param spec Die Specification mit den Suchkriterien und ggf. der Position nach der vorherigen Seite
+     * @param sort Die Sortierung, die mit der Position übereinstimmen muss
+     * @param limit Die Seitengröße
+     * @return Die Vereine der Seite und ob es weitere Vereine gibt
+     */
+    Slice<Verein> findSlice(Specification<Verein> spec, Sort sort, int limit);
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Verein;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import static org.hibernate.jpa.SpecHints.HINT_SPEC_FETCH_GRAPH;
+
+/**
+ * Implementierung des Fragments {@link VereinSliceRepository} mit der Criteria API und <code>LIMIT</code>.
+ */
+@RequiredArgsConstructor
+@Slf4j
+class VereinSliceRepositoryImpl implements VereinSliceRepository {
+    private final EntityManager entityManager;
+
+    @Override
+    public Slice<Verein> findSlice(final Specification<Verein> spec, final Sort sort, final int limit) {
+        final var builder = entityManager.getCriteriaBuilder();
+        final var query = builder.createQuery(Verein.class);
+        final var root = query.from(Verein.class);
+        final var predicate = spec.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(QueryUtils.toOrders(sort, root, builder));
+
+        // die Adresse wird fuer Listen benoetigt und mit demselben SELECT gelesen
+        final var vereine = entityManager.createQuery(query)
+            .setHint(HINT_SPEC_FETCH_GRAPH, entityManager.getEntityGraph(Verein.ADRESSE_GRAPH))
+            .setMaxResults(limit + 1)
+            .getResultList();
+        final var hasNext = vereine.size() > limit;
+        log.debug("findSlice: {} Vereine, hasNext={}", Math.min(vereine.size(), limit), hasNext);
+        return new SliceImpl<>(
+            hasNext ? vereine.subList(0, limit) : vereine,
+            PageRequest.of(0, limit, sort),
+            hasNext
+        );
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Umsatz;
+
+import java.util.UUID;
+
+/**
+ * Umsatz eines Vereins zusammen mit der ID des Vereins, um die Umsätze mehrerer Vereine mit einem SELECT zu lesen.
+ *
+ * @param vereinId Die ID des Vereins
+ * @param umsatz Der Umsatz des Vereins
+ */
+public record VereinUmsatz(UUID vereinId, Umsatz umsatz) {
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import com.acme.verein.entity.Verein;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.hateoas.Link;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Gefundene Vereine für eine HAL-Collection, die von {@link VereinCollectionHttpMessageConverter} ohne
+ * {@link org.springframework.hateoas.CollectionModel} geschrieben wird. Die Vereine liegen als Liste vollständig im
+ * Speicher, d.h. die Größe ist nur durch die Seitengröße bzw. die Anzahl der Treffer beschränkt.
+ *
+ * @param vereine Die gefundenen Vereine
+ * @param baseUri Die Basis-URI für die self-Links
+ * @param nextUri Die URI für den next-Link oder null, falls es keine weitere Seite gibt
+ */
+record VereinCollection(List<Verein> vereine, String baseUri, @Nullable String nextUri) {
+    /**
+     * HAL-Darstellung einer {@link VereinCollection} nur für die OpenAPI-Dokumentation.
+     *
+     * @param embedded Die Vereine mit jeweils einem self-Link, fehlt bei einer leeren Collection
+     * @param links Der next-Link, falls es eine weitere Seite gibt
+     */
+    @Schema(name = "VereinCollection", description = "Vereine als HAL-Collection")
+    record Hal(
+        @JsonProperty("_embedded") @Nullable Embedded embedded,
+        @JsonProperty("_links") @Nullable Links links
+    ) {
+    }
+
+    /**
+     * Eingebettete Vereine nur für die OpenAPI-Dokumentation.
+     *
+     * @param vereine Die Vereine mit jeweils einem self-Link
+     */
+    record Embedded(List<VereinModel> vereine) {
+    }
+
+    /**
+     * Links der HAL-Collection nur für die OpenAPI-Dokumentation.
+     *
+     * @param next Link zur nächsten Seite
+     */
+    record Links(Link next) {
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
+import static org.springframework.hateoas.MediaTypes.HAL_JSON;
+
+/**
+ * HttpMessageConverter, der eine {@link VereinCollection} im selben HAL-Format wie ein
+ * {@link org.springframework.hateoas.CollectionModel} mit {@link VereinModel} schreibt: die Vereine unter
+ * <code>_embedded.vereine</code> jeweils mit self-Link und ggf. einen next-Link unter <code>_links</code>. Jeder
+ * Verein wird als {@link VereinModel} mit demselben ObjectWriter für HAL wie bei {@link VereinHalCache} direkt in
+ * den Response geschrieben, d.h. ohne CollectionModel und ohne das gesamte JSON-Dokument im Speicher aufzubauen. Die
+ * Vereine selbst liegen dabei als Liste in der {@link VereinCollection} vollständig im Speicher.
+ */
+@Component
+@Slf4j
+class VereinCollectionHttpMessageConverter extends AbstractHttpMessageConverter<VereinCollection> {
+    // VereinHalCache verwendet den HandlerAdapter, der diesen HttpMessageConverter enthaelt
+    private final ObjectProvider<VereinHalCache> halCache;
+
+    /**
+     * Konstruktor mit dem Cache, dessen ObjectWriter für HAL verwendet wird.
+     *
+     * @param halCache Cache für die HAL-Darstellung einzelner Vereine, erst beim Schreiben ermittelt
+     */
+    VereinCollectionHttpMessageConverter(final ObjectProvider<VereinHalCache> halCache) {
+        super(HAL_JSON);
+        this.halCache = halCache;
+    }
+
+    @Override
+    protected boolean supports(final Class<?> clazz) {
+        return VereinCollection.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(final Class<?> clazz, @Nullable final MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected VereinCollection readInternal(
+        final Class<? extends VereinCollection> clazz,
+        final HttpInputMessage inputMessage
+    ) {
+        throw new HttpMessageNotReadableException("VereinCollection kann nicht gelesen werden", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(final VereinCollection collection, final HttpOutputMessage outputMessage)
+        throws IOException {
+        // ohne flush() nach jedem Verein
+        final var writer = halCache.getObject().getWriter().without(FLUSH_AFTER_WRITE_VALUE);
+        // der OutputStream wird von Spring MVC geschlossen
+        final var out = StreamUtils.nonClosing(outputMessage.getBody());
+        try (var generator = writer.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            final var vereine = collection.vereine();
+            if (!vereine.isEmpty()) {
+                generator.writeObjectFieldStart("_embedded");
+                generator.writeArrayFieldStart("vereine");
+                final var baseUri = collection.baseUri();
+                for (final var verein : vereine) {
+                    final var model = new VereinModel(verein);
+                    model.add(Link.of(baseUri + '/' + verein.getId()));
+                    writer.writeValue(generator, model);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            final var nextUri = collection.nextUri();
+            if (nextUri != null) {
+                generator.writeObjectFieldStart("_links");
+                writeLink(generator, "next", nextUri);
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+        log.trace("writeInternal: {} Vereine", collection.vereine().size());
+    }
+
+    private static void writeLink(final JsonGenerator generator, final String rel, final String href)
+        throws IOException {
+        generator.writeObjectFieldStart(rel);
+        generator.writeStringField("href", href);
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import com.acme.verein.entity.Verein;
+
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * ValueObject für eine Zeile beim Export als NDJSON.
+ *
+ * @param id              Die ID eines Vereines.
+ * @param version         Die Versionsnummer eines Vereines.
+ * @param name            Der Name eines Vereines.
+ * @param email           Email eines Vereines.
+ * @param gruendungsdatum Das Gruendungsdatum eines Vereines.
+ * @param homepage        Die Homepage eines Vereines.
+ * @param adresse         Die Adresse eines Vereines.
+ * @param fussballvereinId Die Id des Fussballvereins
+ */
+@SuppressWarnings("RecordComponentNumber")
+record VereinExportDTO(
+    UUID id,
+    int version,
+    String name,
+    String email,
+    LocalDate gruendungsdatum,
+    URL homepage,
+    AdresseDTO adresse,
+    UUID fussballvereinId
+) {
+    /**
+     * Konvertierung aus einem Objekt des Anwendungskerns.
+     *
+     * @param verein Vereinobjekt aus dem Anwendungskern
+     * @return ValueObject für den Export
+     */
+    static VereinExportDTO of(final Verein verein) {
+        final var adresse = verein.getAdresse();
+        return new VereinExportDTO(
+            verein.getId(),
+            verein.getVersion(),
+            verein.getName(),
+            verein.getEmail(),
+            verein.getGruendungsdatum(),
+            verein.getHomepage(),
+            adresse == null ? null : new AdresseDTO(adresse.getPlz(), adresse.getOrt()),
+            verein.getFussballvereinId()
+        );
+    }
+}
@@ -17,36 +17,58 @@
 package com.acme.verein.rest;
 
 import com.acme.verein.entity.Verein;
+import com.acme.verein.repository.SpecBuilder;
+import com.acme.verein.service.Cursor;
+import com.acme.verein.service.InvalidArgumentException;
+import com.acme.verein.service.Keyset;
+import com.acme.verein.service.VereinExportService;
 import com.acme.verein.service.VereinReadService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.info.Info;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.LinkRelation;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import static com.acme.verein.rest.VereinGetController.REST_PATH;
+import static org.springframework.hateoas.MediaTypes.HAL_JSON;
 import static org.springframework.hateoas.MediaTypes.HAL_JSON_VALUE;
 import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+import static org.springframework.http.ResponseEntity.badRequest;
 import static org.springframework.http.ResponseEntity.notFound;
 import static org.springframework.http.ResponseEntity.ok;
 import static org.springframework.http.ResponseEntity.status;
@@ -74,6 +96,51 @@ public class VereinGetController {
      */
     public static final String NACHNAME_PATH = "/name"; //NOSONAR
 
+    /**
+     * Pfad für den Export aller Vereine als NDJSON.
+     */
+    public static final String EXPORT_PATH = "/export"; //NOSONAR
+
+    /**
+     * Anzahl der Zeilen, nach denen beim Export der OutputStream geleert wird.
+     */
+    static final int FLUSH_INTERVAL = 1_000;
+
+    /**
+     * Query-Parameter, um eingebettete Daten anzufordern, z.B. <code>?embed=fussballverein</code>.
+     */
+    public static final String EMBED_PARAM = "embed"; //NOSONAR
+
+    /**
+     * Wert für {@link #EMBED_PARAM}, um Vereinsname und Emailadresse des Fussballvereins einzubetten.
+     */
+    public static final String EMBED_FUSSBALLVEREIN = "fussballverein"; //NOSONAR
+
+    /**
+     * Query-Parameter für die Seitengröße.
+     */
+    public static final String LIMIT_PARAM = "limit"; //NOSONAR
+
+    /**
+     * Query-Parameter für den Cursor aus einem next-Link.
+     */
+    public static final String CURSOR_PARAM = "cursor"; //NOSONAR
+
+    /**
+     * Query-Parameter für die Sortierung der ersten Seite: <code>id</code> (Default) oder <code>name</code>.
+     */
+    public static final String SORT_PARAM = "sort"; //NOSONAR
+
+    /**
+     * Seitengröße, falls der Query-Parameter <code>limit</code> fehlt.
+     */
+    static final int DEFAULT_LIMIT = 20;
+
+    /**
+     * Anzahl der Namen bei der Abfrage zu einem Präfix, falls der Query-Parameter <code>limit</code> fehlt.
+     */
+    static final int DEFAULT_NAMEN_LIMIT = 10;
+
     /**
      * Muster für eine UUID. [\dA-Fa-f]{8}-([\dA-Fa-f]{4}-){3}[\dA-Fa-f]{12} enthält eine "capturing group"
      * und ist nicht zulässig.
@@ -82,47 +149,78 @@ public class VereinGetController {
         "[\\dA-Fa-f]{8}-[\\dA-Fa-f]{4}-[\\dA-Fa-f]{4}-[\\dA-Fa-f]{4}-[\\dA-Fa-f]{12}";
 
     private final VereinReadService service;
+    private final VereinExportService exportService;
     private final UriHelper uriHelper;
+    private final VereinHalCache halCache;
+    private final ObjectMapper objectMapper;
 
     // https://localhost:8080/swagger-ui.html
 
     /**
-     * Suche anhand der Verein-ID als Pfad-Parameter.
+     * Suche anhand der Verein-ID als Pfad-Parameter. Die HAL-Darstellung wird zu ID, Versionsnummer und Basis-URI
+     * zwischengespeichert, so dass danach nur noch die Versionsnummer gelesen werden muss. Ohne If-None-Match und
+     * ohne Eintrag im Cache wird nur der Verein gelesen und dessen Versionsnummer verwendet.
      *
      * @param id      ID des zu suchenden Vereine
      * @param version Versionsnummer aus dem Header If-None-Match
      * @param request Das Request-Objekt, um Links für HATEOAS zu erstellen.
-     * @return Ein Response mit dem Statuscode 200 und dem gefundenen Vereine mit Atom-Links oder Statuscode 404.
+     * @return Ein Response mit dem Statuscode 200 und dem gefundenen Vereine mit Atom-Links, Statuscode 304, falls
+     *     die Version aus If-None-Match aktuell ist, oder Statuscode 404.
      */
     @GetMapping(path = "{id:" + ID_PATTERN + "}", produces = HAL_JSON_VALUE)
     @Operation(summary = "Suche mit der Verein-ID", tags = "Suchen")
-    @ApiResponse(responseCode = "200", description = "Verein gefunden")
+    @ApiResponse(
+        responseCode = "200",
+        description = "Verein gefunden",
+        content = @Content(mediaType = HAL_JSON_VALUE, schema = @Schema(implementation = VereinModel.class))
+    )
+    @ApiResponse(responseCode = "304", description = "Verein nicht modifiziert")
     @ApiResponse(responseCode = "404", description = "Verein nicht gefunden")
     @SuppressWarnings("ReturnCount")
-    ResponseEntity<VereinModel> findById(
+    ResponseEntity<byte[]> findById(
         @PathVariable final UUID id,
         @RequestHeader("If-None-Match") final Optional<String> version,
         final HttpServletRequest request
     ) {
+        final var baseUri = uriHelper.getBaseUri(request).toString();
+        if (version.isPresent() || halCache.contains(id, baseUri)) {
+            // bedingter GET-Request oder Eintrag im Cache: nur die Versionsnummer lesen und ohne Entity mit 304 bzw.
+            // aus dem Cache antworten
+            final var versionDb = service.findVersionById(id);
+            if (Objects.equals(version.orElse(null), eTag(versionDb))) {
+                log.debug("findById: id={} nicht modifiziert", id);
+                return status(NOT_MODIFIED).build();
+            }
+            final var json = halCache.get(id, versionDb, baseUri);
+            if (json != null) {
+                log.debug("findById: id={} aus dem Cache", id);
+                return ok().eTag(eTag(versionDb)).contentType(HAL_JSON).body(json);
+            }
+        }
 
-
-        // Anwendungskern
+        // Anwendungskern: ohne bzw. mit veraltetem Eintrag im Cache die Versionsnummer aus dem Verein
         final var verein = service.findById(id);
         log.debug("findById: {}", verein);
 
-        final var currentVersion = "\"" + verein.getVersion() + '"';
+        final var currentVersion = eTag(verein.getVersion());
         if (Objects.equals(version.orElse(null), currentVersion)) {
             return status(NOT_MODIFIED).build();
         }
 
-        final var model = vereinToModel(verein, request);
+        final var model = vereinToModel(verein, baseUri);
         log.debug("findById: model={}", model);
-        return ok().eTag(currentVersion).body(model);
+        return ok()
+            .eTag(currentVersion)
+            .contentType(HAL_JSON)
+            .body(halCache.put(id, model, verein.getVersion(), baseUri));
     }
 
-    private VereinModel vereinToModel(final Verein verein, final HttpServletRequest request) {
+    private static String eTag(final int version) {
+        return "\"" + version + '"';
+    }
+
+    private static VereinModel vereinToModel(final Verein verein, final String baseUri) {
         final var model = new VereinModel(verein);
-        final var baseUri = uriHelper.getBaseUri(request).toString();
         final var idUri = baseUri + '/' + verein.getId();
 
         final var selfLink = Link.of(idUri);
@@ -135,64 +233,157 @@ public class VereinGetController {
     }
 
     /**
-     * Suche mit diversen Suchkriterien als Query-Parameter.
+     * Suche mit diversen Suchkriterien als Query-Parameter. Vereinsname und Emailadresse des Fussballvereins werden
+     * nur mit <code>?embed=fussballverein</code> ermittelt, sonst gibt es keinen Zugriff auf den Microservice
+     * "fussballverein". Die Vereine werden seitenweise geliefert: <code>limit</code> (höchstens
+     * {@value VereinReadService#MAX_LIMIT}), <code>sort</code> und <code>cursor</code> aus dem next-Link. Mehrere
+     * Suchkriterien werden mit AND verknüpft, siehe {@link SpecBuilder}, und nur nach der ID sortiert. Die Vereine
+     * werden einzeln in den Response geschrieben, siehe {@link VereinCollectionHttpMessageConverter}.
      *
-     * @param suchkriterien Query-Parameter als Map.
+     * @param queryParams Query-Parameter als Map.
      * @param request       Das Request-Objekt, um Links für HATEOAS zu erstellen.
-     * @return Ein Response mit dem Statuscode 200 und den gefundenen Vereine als CollectionModel oder Statuscode 404.
+     * @return Ein Response mit dem Statuscode 200 und den gefundenen Vereine als HAL-Collection oder
+     *     Statuscode 404.
      */
     @GetMapping(produces = HAL_JSON_VALUE)
     @Operation(summary = "Suche mit Suchkriterien", tags = "Suchen")
-    @ApiResponse(responseCode = "200", description = "CollectionModel mid den Vereine")
-    @ApiResponse(responseCode = "404", description = "Keine Vereine gefunden")
-    ResponseEntity<Object> find(
-        @RequestParam @NonNull final Map<String, String> suchkriterien,
+    @ApiResponse(
+        responseCode = "200",
+        description = "HAL-Collection mit den Vereinen",
+        content = @Content(mediaType = HAL_JSON_VALUE, schema = @Schema(implementation = VereinCollection.Hal.class))
+    )
+    @ApiResponse(responseCode = "400", description = "Ungueltiger Cursor, Limit oder Sortierung")
+    @ApiResponse(responseCode = "404", description = "Keine Vereine gefunden oder ungueltiges Suchkriterium")
+    ResponseEntity<VereinCollection> find(
+        @RequestParam @NonNull final Map<String, String> queryParams,
         final HttpServletRequest request
     ) {
-        log.debug("find: queryParams={}", suchkriterien);
-        if (suchkriterien.size() > 1) {
-            return notFound().build();
-        }
+        log.debug("find: queryParams={}", queryParams);
+        final Map<String, String> suchkriterien = new HashMap<>(queryParams);
+        final var embed = suchkriterien.remove(EMBED_PARAM);
+        final var embedFussballverein = embed != null
+            && Arrays.asList(embed.split(",")).contains(EMBED_FUSSBALLVEREIN);
+        final var limit = suchkriterien.remove(LIMIT_PARAM);
+        final var cursor = suchkriterien.remove(CURSOR_PARAM);
+        final var sort = suchkriterien.remove(SORT_PARAM);
         log.debug("find: suchkriterien={}", suchkriterien);
 
-        final Collection<Verein> vereine;
-        if (suchkriterien.isEmpty()) {
-            vereine = service.findAll();
-        } else {
-            final var fussballvereinIdStr = suchkriterien.get("fussballvereinId");
-            if (fussballvereinIdStr == null) {
-                return notFound().build();
-            }
-            final var fussballvereinId = UUID.fromString(fussballvereinIdStr);
-            vereine = service.findByFussballvereinId(fussballvereinId);
+        final var baseUri = uriHelper.getBaseUri(request).toString();
+        return findSeite(suchkriterien, limit, cursor, sort, embed, embedFussballverein, baseUri);
+    }
+
+    private ResponseEntity<VereinCollection> findSeite(
+        final Map<String, String> suchkriterien,
+        @Nullable final String limitStr,
+        @Nullable final String cursor,
+        @Nullable final String sort,
+        @Nullable final String embed,
+        final boolean embedFussballverein,
+        final String baseUri
+    ) {
+        final int limit;
+        final Keyset nach;
+        final Keyset.Sortierung sortierung;
+        try {
+            limit = limitStr == null ? DEFAULT_LIMIT : Integer.parseInt(limitStr);
+            nach = cursor == null ? null : Cursor.decode(cursor);
+            sortierung = sort == null ? Keyset.Sortierung.ID : Keyset.Sortierung.valueOf(sort.toUpperCase(Locale.ROOT));
+        } catch (final InvalidArgumentException | IllegalArgumentException ex) {
+            log.debug("findSeite: {}", ex.getMessage());
+            return badRequest().build();
+        }
+        if (limit < 1) {
+            return badRequest().build();
+        }
+        // mit Suchkriterien werden die Seiten nur nach der ID gebildet
+        final var sortierungSeite = nach == null ? sortierung : nach.sortierung();
+        if (!suchkriterien.isEmpty() && sortierungSeite != Keyset.Sortierung.ID) {
+            return badRequest().build();
         }
 
-        final var baseUri = uriHelper.getBaseUri(request).toString();
-        final var models = vereine
-            .stream()
-            .map(verein -> {
-                final var model = new VereinModel(verein);
-                model.add(Link.of(baseUri + '/' + verein.getId()));
-                return model;
-            })
-            .toList();
-        log.debug("find: {}", models);
-        return ok(CollectionModel.of(models));
+        final var seite = suchkriterien.isEmpty()
+            ? service.findSeite(sortierung, nach, limit, embedFussballverein)
+            : service.findSeite(
+                suchkriterien.entrySet()
+                    .stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, entry -> List.of(entry.getValue()))),
+                nach,
+                limit,
+                embedFussballverein
+            );
+        if (!suchkriterien.isEmpty() && nach == null && !seite.hasContent()) {
+            return notFound().build();
+        }
+        String nextUri = null;
+        if (seite.hasNext()) {
+            final var letzter = seite.getContent().get(seite.getNumberOfElements() - 1);
+            final var nextUriBuilder = UriComponentsBuilder.fromUriString(baseUri);
+            suchkriterien.forEach((name, wert) -> nextUriBuilder.queryParam(name, wert));
+            nextUri = nextUriBuilder
+                .queryParam(LIMIT_PARAM, seite.getSize())
+                .queryParam(CURSOR_PARAM, Cursor.encode(Keyset.nach(letzter, sortierungSeite)))
+                .queryParamIfPresent(EMBED_PARAM, Optional.ofNullable(embed))
+                .encode()
+                .build()
+                .toUriString();
+        }
+        log.debug("findSeite: {} Vereine, next={}", seite.getNumberOfElements(), seite.hasNext());
+        return ok(new VereinCollection(seite.getContent(), baseUri, nextUri));
     }
 
     /**
-     * Abfrage, welche Namen es zu einem Präfix gibt.
+     * Export aller Vereine als NDJSON, d.h. ein JSON-Objekt je Zeile. Die Vereine werden direkt aus der DB in den
+     * Response gestreamt und die Ausgabe wird regelmäßig geleert, so dass der Speicherbedarf unabhängig von der
+     * Anzahl der Vereine ist.
+     *
+     * @return Ein Response mit dem Statuscode 200 und den Vereinen als NDJSON
+     */
+    @GetMapping(path = EXPORT_PATH, produces = APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export aller Vereine als NDJSON", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Vereine als NDJSON")
+    ResponseEntity<StreamingResponseBody> export() {
+        log.debug("export");
+        final var writer = objectMapper.writerFor(VereinExportDTO.class);
+        final StreamingResponseBody body = out -> {
+            final var zeilen = new AtomicLong();
+            exportService.export(verein -> {
+                try {
+                    out.write(writer.writeValueAsBytes(VereinExportDTO.of(verein)));
+                    out.write('\n');
+                    if (zeilen.incrementAndGet() % FLUSH_INTERVAL == 0) {
+                        out.flush();
+                    }
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            out.flush();
+            log.debug("export: {} Zeilen", zeilen.get());
+        };
+        return ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Abfrage, welche Namen es zu einem Präfix gibt, z.B. für die Autovervollständigung.
      *
      * @param prefix Name-Präfix als Pfadvariable.
-     * @return Die passenden Namen oder Statuscode 404, falls es keine gibt.
+     * @param limit Maximale Anzahl an Namen als Query-Parameter, höchstens {@value VereinReadService#MAX_LIMIT}
+     * @return Die passenden Namen als JSON-Array, Statuscode 400 bei einem ungültigen Limit oder Statuscode 404,
+     *     falls es keine gibt.
      */
     @GetMapping(path = NACHNAME_PATH + "/{prefix}", produces = APPLICATION_JSON_VALUE)
     @Operation(summary = "Suche Namen mit Praefix", tags = "Suchen")
-    String findNamenByPrefix(@PathVariable final String prefix) {
-        log.debug("findNamenByPrefix: {}", prefix);
-        final var namen = service.findNamenByPrefix(prefix);
+    ResponseEntity<Collection<String>> findNamenByPrefix(
+        @PathVariable final String prefix,
+        @RequestParam(name = LIMIT_PARAM, defaultValue = "" + DEFAULT_NAMEN_LIMIT) final int limit
+    ) {
+        log.debug("findNamenByPrefix: prefix={}, limit={}", prefix, limit);
+        if (limit < 1) {
+            return badRequest().build();
+        }
+        final var namen = service.findNamenByPrefix(prefix, limit);
         log.debug("findNamenByPrefix: {}", namen);
-        return namen.toString();
+        return ok(namen);
     }
 
 }
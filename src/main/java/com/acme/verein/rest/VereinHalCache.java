@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import com.acme.verein.service.VereinGeaendert;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.UUID;
+
+import static org.springframework.hateoas.MediaTypes.HAL_JSON;
+
+/**
+ * Größenbeschränkter Cache für die fertig serialisierte HAL-Darstellung einzelner Vereine. Ein Eintrag gilt nur für
+ * die Versionsnummer und die Basis-URI, mit denen er erstellt wurde. Nach einer Änderung oder dem Löschen eines
+ * Vereins wird der Eintrag nach dem Commit verworfen, siehe {@link VereinGeaendert}. Die Metriken stehen mit dem Tag
+ * "cache=verein-hal" über Actuator zur Verfügung.
+ */
+@Component
+@Slf4j
+class VereinHalCache {
+    /**
+     * Name des Caches für die Metriken.
+     */
+    static final String CACHE_NAME = "verein-hal";
+
+    /**
+     * Maximale Anzahl an Vereinen im Cache.
+     */
+    static final long MAXIMUM_SIZE = 10_000;
+
+    private final Cache<UUID, Eintrag> cache;
+    private final RequestMappingHandlerAdapter handlerAdapter;
+    @Nullable
+    private volatile ObjectWriter writer;
+
+    /**
+     * Konstruktor mit dem HandlerAdapter, dessen Konfiguration für HAL verwendet wird.
+     *
+     * @param handlerAdapter HandlerAdapter von Spring MVC mit den HttpMessageConvertern
+     * @param meterRegistry Registry für die Metriken des Caches
+     */
+    VereinHalCache(final RequestMappingHandlerAdapter handlerAdapter, final MeterRegistry meterRegistry) {
+        this.handlerAdapter = handlerAdapter;
+        cache = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Abfrage, ob es zu einem Verein einen Eintrag mit der Basis-URI gibt, unabhängig von der Versionsnummer.
+     *
+     * @param id Die ID des Vereins
+     * @param baseUri Die Basis-URI für die Links
+     * @return true, falls es einen Eintrag gibt, der evtl. veraltet ist
+     */
+    boolean contains(final UUID id, final String baseUri) {
+        final var eintrag = cache.getIfPresent(id);
+        return eintrag != null && eintrag.baseUri().equals(baseUri);
+    }
+
+    /**
+     * Die HAL-Darstellung eines Vereins aus dem Cache lesen.
+     *
+     * @param id Die ID des Vereins
+     * @param version Die aktuelle Versionsnummer des Vereins
+     * @param baseUri Die Basis-URI für die Links
+     * @return Die HAL-Darstellung als JSON-Bytes oder null, falls es keinen passenden Eintrag gibt
+     */
+    @Nullable
+    byte[] get(final UUID id, final int version, final String baseUri) {
+        final var eintrag = cache.getIfPresent(id);
+        if (eintrag == null || eintrag.version() != version || !eintrag.baseUri().equals(baseUri)) {
+            return null;
+        }
+        return eintrag.json();
+    }
+
+    /**
+     * Die HAL-Darstellung eines Vereins serialisieren und in den Cache schreiben.
+     *
+     * @param id Die ID des Vereins
+     * @param model Das Model des Vereins mit den Links
+     * @param version Die Versionsnummer des Vereins
+     * @param baseUri Die Basis-URI der Links
+     * @return Die HAL-Darstellung als JSON-Bytes
+     */
+    byte[] put(final UUID id, final VereinModel model, final int version, final String baseUri) {
+        final byte[] json;
+        try {
+            json = getWriter().writeValueAsBytes(model);
+        } catch (final JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+        cache.put(id, new Eintrag(version, baseUri, json));
+        return json;
+    }
+
+    /**
+     * Den Eintrag zu einem geänderten oder gelöschten Verein nach dem Commit verwerfen.
+     *
+     * @param event Ereignis mit der ID des Vereins
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    void onVereinGeaendert(final VereinGeaendert event) {
+        log.trace("onVereinGeaendert: id={}", event.id());
+        cache.invalidate(event.id());
+    }
+
+    /**
+     * ObjectWriter für {@link VereinModel} mit dem ObjectMapper des HttpMessageConverters für HAL, d.h. "_links" statt
+     * "links" wie bei der Rückgabe eines Models. Er wird auch von {@link VereinCollectionHttpMessageConverter}
+     * verwendet.
+     *
+     * @return ObjectWriter für HAL
+     */
+    ObjectWriter getWriter() {
+        var result = writer;
+        if (result == null) {
+            result = handlerAdapter.getMessageConverters()
+                .stream()
+                .filter(converter -> converter instanceof AbstractJackson2HttpMessageConverter)
+                .filter(converter -> converter.canWrite(VereinModel.class, HAL_JSON))
+                .map(converter -> ((AbstractJackson2HttpMessageConverter) converter).getObjectMapper())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Kein HttpMessageConverter fuer HAL"))
+                .writerFor(VereinModel.class);
+            writer = result;
+        }
+        return result;
+    }
+
+    private record Eintrag(int version, String baseUri, byte[] json) {
+    }
+}
@@ -18,6 +18,7 @@ package com.acme.verein.rest;
 
 import com.acme.verein.entity.Adresse;
 import com.acme.verein.entity.Verein;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -30,6 +31,8 @@ import java.net.URL;
 import java.time.LocalDate;
 import java.util.UUID;
 
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
 /**
  * Model-Klasse für Spring HATEOAS. @lombok.Data fasst die Annotationen @ToString, @EqualsAndHashCode, @Getter, @Setter
  * und @RequiredArgsConstructor zusammen.
@@ -38,7 +41,7 @@ import java.util.UUID;
  */
 @JsonPropertyOrder({
     "name", "email", "gruendungsdatum", "homepage",
-    "umsatz", "adresse, fussballvereinId,fussballvereinVerinsname, fussballvereinEmail "
+    "umsatz", "adresse", "fussballvereinId", "fussballvereinVereinsname", "fussballvereinEmail"
 })
 @Relation(collectionRelation = "vereine", itemRelation = "verein")
 @EqualsAndHashCode(onlyExplicitlyIncluded = true, callSuper = false)
@@ -57,8 +60,11 @@ class VereinModel extends RepresentationModel<VereinModel> {
 
     private final UUID fussballvereinId;
 
-    private final String fussballvereinVerinsname;
+    // nur bei ?embed=fussballverein
+    @JsonInclude(NON_NULL)
+    private final String fussballvereinVereinsname;
 
+    @JsonInclude(NON_NULL)
     private final String fussballvereinEmail;
 
     VereinModel(final Verein verein) {
@@ -68,7 +74,7 @@ class VereinModel extends RepresentationModel<VereinModel> {
         homepage = verein.getHomepage();
         adresse = verein.getAdresse();
         fussballvereinId = verein.getFussballvereinId();
-        fussballvereinVerinsname = verein.getFussballvereinVereinsname();
+        fussballvereinVereinsname = verein.getFussballvereinVereinsname();
         fussballvereinEmail = verein.getFussballvereinEmail();
     }
 }
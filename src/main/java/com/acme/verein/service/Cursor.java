@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import java.util.Base64;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Kodierung einer {@link Keyset}-Position als undurchsichtiger Cursor für den Query-Parameter <code>cursor</code> der
+ * REST-Schnittstelle und für die Connections der GraphQL-Schnittstelle.
+ */
+public final class Cursor {
+    private static final String SEPARATOR = ":";
+    private static final int TEILE_ID = 2;
+    private static final int TEILE_NAME = 3;
+    private static final String UNGUELTIG = "Ungueltiger Cursor";
+
+    private Cursor() {
+    }
+
+    /**
+     * Eine Position als Cursor kodieren.
+     *
+     * @param keyset Die Position
+     * @return Der Cursor als URL-sicherer Base64-String
+     */
+    public static String encode(final Keyset keyset) {
+        var klartext = keyset.sortierung().name() + SEPARATOR + keyset.id();
+        if (keyset.sortierung() == Keyset.Sortierung.NAME) {
+            klartext += SEPARATOR + keyset.name();
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(klartext.getBytes(UTF_8));
+    }
+
+    /**
+     * Einen Cursor dekodieren.
+     *
+     * @param cursor Der Cursor aus einem next-Link oder einer Connection
+     * @return Die Position
+     * @throws InvalidArgumentException falls der Cursor ungültig ist
+     */
+    public static Keyset decode(final String cursor) {
+        final String[] teile;
+        final Keyset.Sortierung sortierung;
+        final UUID id;
+        try {
+            final var klartext = new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+            // der Name ist der letzte Teil und darf selbst ":" enthalten
+            teile = klartext.split(SEPARATOR, TEILE_NAME);
+            if (teile.length < TEILE_ID) {
+                throw new InvalidArgumentException(UNGUELTIG);
+            }
+            sortierung = Keyset.Sortierung.valueOf(teile[0]);
+            id = UUID.fromString(teile[1]);
+        } catch (final IllegalArgumentException ex) {
+            // Base64, Sortierung oder UUID: die Meldung der JDK-Klassen nicht an den Client weitergeben
+            throw new InvalidArgumentException(UNGUELTIG);
+        }
+        if (sortierung == Keyset.Sortierung.NAME) {
+            if (teile.length != TEILE_NAME) {
+                throw new InvalidArgumentException(UNGUELTIG);
+            }
+            return new Keyset(sortierung, teile[2], id);
+        }
+        return new Keyset(sortierung, null, id);
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+/**
+ * Exception, falls ein Argument für die seitenweise Suche ungültig ist, z.B. ein Cursor. Die Meldung wird von der
+ * Anwendung selbst formuliert und kann deshalb an den Client zurückgegeben werden.
+ */
+public class InvalidArgumentException extends RuntimeException {
+    /**
+     * Konstruktor mit einer Meldung für den Client.
+     *
+     * @param message Die Meldung ohne Details aus der Implementierung
+     */
+    public InvalidArgumentException(final String message) {
+        super(message);
+    }
+}
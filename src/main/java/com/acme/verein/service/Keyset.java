@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.entity.Verein;
+import org.springframework.lang.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Position für "Keyset Pagination": Sortierung sowie Name und ID des letzten Vereins der vorherigen Seite.
+ *
+ * @param sortierung Die Sortierung der Seiten
+ * @param name Der Name des letzten Vereins, nur bei der Sortierung nach Name und ID
+ * @param id Die ID des letzten Vereins
+ */
+public record Keyset(Sortierung sortierung, @Nullable String name, UUID id) {
+    /**
+     * Die Position nach einem Verein ermitteln.
+     *
+     * @param verein Der letzte Verein einer Seite
+     * @param sortierung Die Sortierung der Seiten
+     * @return Die Position für die nächste Seite
+     */
+    public static Keyset nach(final Verein verein, final Sortierung sortierung) {
+        return new Keyset(sortierung, sortierung == Sortierung.NAME ? verein.getName() : null, verein.getId());
+    }
+
+    /**
+     * Sortierung für "Keyset Pagination", die ID ist immer das letzte Sortierkriterium.
+     */
+    public enum Sortierung {
+        /**
+         * Sortierung nach der ID.
+         */
+        ID,
+
+        /**
+         * Sortierung nach Name und ID.
+         */
+        NAME
+    }
+}
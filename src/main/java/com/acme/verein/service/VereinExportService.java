@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.entity.Verein;
+import com.acme.verein.repository.VereinRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.Consumer;
+
+/**
+ * Anwendungslogik für den Export aller Vereine mit konstantem Speicherbedarf: die Vereine werden aus einem
+ * JDBC-ResultSet gestreamt und der Persistenzkontext wird regelmäßig geleert.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VereinExportService {
+    /**
+     * Anzahl der Vereine, nach denen der Persistenzkontext geleert wird.
+     */
+    static final int CLEAR_INTERVAL = 1_000;
+
+    private final VereinRepository repo;
+    private final EntityManager entityManager;
+
+    /**
+     * Alle Vereine sortiert nach der ID an einen Consumer übergeben. Der Consumer wird innerhalb einer
+     * Readonly-Transaktion aufgerufen und darf die Vereine nicht über den Aufruf hinaus referenzieren.
+     *
+     * @param consumer Consumer, der jeden Verein z.B. in einen OutputStream schreibt
+     * @return Die Anzahl der exportierten Vereine
+     */
+    @Transactional(readOnly = true)
+    public long export(final Consumer<Verein> consumer) {
+        log.debug("export");
+        var anzahl = 0L;
+        try (var vereine = repo.streamAll()) {
+            final var iterator = vereine.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                anzahl++;
+                if (anzahl % CLEAR_INTERVAL == 0) {
+                    // bereits geschriebene Vereine und Adressen nicht im Persistenzkontext halten
+                    entityManager.clear();
+                }
+            }
+        }
+        log.debug("export: {} Vereine", anzahl);
+        return anzahl;
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import java.util.UUID;
+
+/**
+ * Ereignis, nachdem ein Verein aktualisiert oder gelöscht wurde, z.B. um zwischengespeicherte Darstellungen zu
+ * verwerfen. Es wird innerhalb der Transaktion veröffentlicht und kann mit
+ * {@link org.springframework.transaction.event.TransactionalEventListener} erst nach dem Commit verarbeitet werden.
+ *
+ * @param id Die ID des geänderten Vereins
+ */
+public record VereinGeaendert(UUID id) {
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.repository.VereinRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Invertierter Index aus Trigrammen über die Namen der Vereine für die Teilstring-Suche. Zu jedem Trigramm, d.h. zu
+ * je 3 aufeinanderfolgenden Zeichen eines mit {@link #normalize} normalisierten Namens, gibt es eine aufsteigend
+ * sortierte Liste mit den Nummern der Vereine. Für einen Suchbegriff werden die Listen zu seinen Trigrammen geschnitten
+ * und die verbleibenden Kandidaten mit {@link String#contains} geprüft. Für die Autovervollständigung gibt es
+ * zusätzlich die unterschiedlichen Namen sortiert in einer {@link ConcurrentSkipListMap}, die ohne Sperre gelesen wird.
+ * Der Index wird beim Start der Anwendung aufgebaut und von {@link VereinWriteService} nach jeder Transaktion
+ * aktualisiert. Er liegt im Hauptspeicher der jeweiligen Instanz.
+ */
+@Component
+@Slf4j
+public class VereinNameIndex {
+    /**
+     * Mindestlänge eines Suchbegriffs, damit der Index verwendet werden kann.
+     */
+    public static final int MIN_LAENGE = 3;
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int ASCII = 0x80;
+    private static final Pattern DIAKRITISCHE_ZEICHEN = Pattern.compile("\\p{M}+");
+
+    private final VereinRepository repo;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Nummer eines Vereins im Index -> ID, Name bzw. normalisierter Name fuer find(); null bei geloeschten Vereinen
+    private final List<UUID> ids = new ArrayList<>();
+    private final List<String> namen = new ArrayList<>();
+    private final List<String> normalisierteNamen = new ArrayList<>();
+    private final Map<UUID, Integer> nummern = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    // unterschiedliche Namen -> Anzahl der Vereine mit diesem Namen
+    private final ConcurrentSkipListMap<Schluessel, Integer> sortierteNamen = new ConcurrentSkipListMap<>();
+    // waehrend des Aufbaus geloeschte Vereine, die der Stream evtl. noch liefert
+    private final Set<UUID> geloeschtBeimAufbau = new HashSet<>();
+    private int geloescht;
+    private volatile boolean bereit;
+
+    /**
+     * Konstruktor mit dem Repository, aus dem der Index aufgebaut wird.
+     *
+     * @param repo Repository für Vereine
+     */
+    public VereinNameIndex(final VereinRepository repo) {
+        this.repo = repo;
+    }
+
+    /**
+     * Den Index beim Start der Anwendung aus ID und Name aller Vereine aufbauen. Vereine, die inzwischen durch
+     * {@link #put} eingetragen oder durch {@link #remove} ausgetragen wurden, werden dabei nicht überschrieben.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void aufbauen() {
+        final var start = System.nanoTime();
+        try (var stream = repo.streamNamen()) {
+            stream.forEach(verein -> {
+                lock.writeLock().lock();
+                try {
+                    if (!nummern.containsKey(verein.id()) && !geloeschtBeimAufbau.contains(verein.id())) {
+                        eintragen(verein.id(), verein.name());
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        }
+        final int trigramme;
+        lock.writeLock().lock();
+        try {
+            geloeschtBeimAufbau.clear();
+            bereit = true;
+            trigramme = postings.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("aufbauen: {} Vereine, {} Trigramme in {} ms", size(), trigramme,
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Den Namen eines neuen oder geänderten Vereins eintragen.
+     *
+     * @param id Die ID des Vereins
+     * @param name Der aktuelle Name des Vereins
+     */
+    public void put(final UUID id, @Nullable final String name) {
+        lock.writeLock().lock();
+        try {
+            final var nummer = nummern.get(id);
+            if (nummer != null) {
+                if (Objects.equals(name, namen.get(nummer))) {
+                    return;
+                }
+                austragen(nummer);
+            }
+            eintragen(id, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Einen gelöschten Verein austragen.
+     *
+     * @param id Die ID des gelöschten Vereins
+     */
+    public void remove(final UUID id) {
+        lock.writeLock().lock();
+        try {
+            if (!bereit) {
+                geloeschtBeimAufbau.add(id);
+            }
+            final var nummer = nummern.get(id);
+            if (nummer != null) {
+                austragen(nummer);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Die IDs der Vereine ermitteln, deren Name den Suchbegriff unabhängig von Groß- und Kleinschreibung enthält.
+     *
+     * @param teil Suchbegriff
+     * @return Leeres Optional, falls der Index noch nicht aufgebaut ist oder der Suchbegriff kürzer als
+     *     {@link #MIN_LAENGE} ist, sonst die IDs der gefundenen Vereine
+     */
+    public Optional<List<UUID>> find(final String teil) {
+        final var suchbegriff = normalize(teil);
+        if (!bereit || suchbegriff.length() < MIN_LAENGE) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            final var listen = new ArrayList<Postings>();
+            for (var i = 0; i + MIN_LAENGE <= suchbegriff.length(); i++) {
+                final var liste = postings.get(trigramm(suchbegriff, i));
+                if (liste == null) {
+                    return Optional.of(List.of());
+                }
+                listen.add(liste);
+            }
+            listen.sort(Comparator.comparingInt(liste -> liste.size));
+
+            // die kuerzeste Liste durchlaufen und in den anderen Listen binaer suchen
+            final var kuerzeste = listen.get(0);
+            final var treffer = new ArrayList<UUID>();
+            for (var i = 0; i < kuerzeste.size; i++) {
+                final var nummer = kuerzeste.nummern[i];
+                if (enthaltenInAllen(listen, nummer)) {
+                    final var normalized = normalisierteNamen.get(nummer);
+                    if (normalized != null && normalized.contains(suchbegriff)) {
+                        treffer.add(ids.get(nummer));
+                    }
+                }
+            }
+            log.trace("find: teil={}, kandidaten={}, treffer={}", teil, kuerzeste.size, treffer.size());
+            return Optional.of(treffer);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Die unterschiedlichen Namen mit einem Präfix unabhängig von Groß- und Kleinschreibung ermitteln.
+     *
+     * @param prefix Name-Präfix
+     * @param limit Maximale Anzahl an Namen
+     * @return Leeres Optional, falls der Index noch nicht aufgebaut ist, sonst die ersten Namen in alphabetischer
+     *     Reihenfolge
+     */
+    public Optional<List<String>> findNamenByPrefix(final String prefix, final int limit) {
+        if (!bereit) {
+            return Optional.empty();
+        }
+        final var normalized = normalize(prefix);
+        final var treffer = new ArrayList<String>();
+        for (final var schluessel : sortierteNamen.tailMap(new Schluessel(normalized, ""), true).keySet()) {
+            if (treffer.size() >= limit || !schluessel.normalized().startsWith(normalized)) {
+                break;
+            }
+            treffer.add(schluessel.name());
+        }
+        return Optional.of(treffer);
+    }
+
+    /**
+     * Anzahl der Vereine im Index.
+     *
+     * @return Anzahl der eingetragenen Vereine
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nummern.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean enthaltenInAllen(final List<Postings> listen, final int nummer) {
+        for (var i = 1; i < listen.size(); i++) {
+            final var liste = listen.get(i);
+            if (Arrays.binarySearch(liste.nummern, 0, liste.size, nummer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Aufruf nur mit Write-Lock
+    private void eintragen(final UUID id, @Nullable final String name) {
+        final var normalized = name == null ? null : normalize(name);
+        indizieren(id, name, normalized);
+        if (name != null) {
+            sortierteNamen.merge(new Schluessel(normalized, name), 1, Integer::sum);
+        }
+    }
+
+    // Aufruf nur mit Write-Lock
+    private void indizieren(final UUID id, @Nullable final String name, @Nullable final String normalized) {
+        final var nummer = ids.size();
+        ids.add(id);
+        namen.add(name);
+        normalisierteNamen.add(normalized);
+        nummern.put(id, nummer);
+        if (normalized == null) {
+            return;
+        }
+        // Nummern werden fortlaufend vergeben, d.h. die Listen bleiben aufsteigend sortiert
+        for (var i = 0; i + MIN_LAENGE <= normalized.length(); i++) {
+            postings.computeIfAbsent(trigramm(normalized, i), key -> new Postings()).add(nummer);
+        }
+    }
+
+    // Aufruf nur mit Write-Lock
+    private void austragen(final int nummer) {
+        final var name = namen.get(nummer);
+        if (name != null) {
+            // bei 0 wird der Name entfernt
+            sortierteNamen.merge(
+                new Schluessel(normalisierteNamen.get(nummer), name),
+                -1,
+                (anzahl, delta) -> anzahl + delta == 0 ? null : anzahl + delta
+            );
+        }
+        nummern.remove(ids.get(nummer));
+        ids.set(nummer, null);
+        namen.set(nummer, null);
+        normalisierteNamen.set(nummer, null);
+        geloescht++;
+        if (geloescht > nummern.size()) {
+            kompaktieren();
+        }
+    }
+
+    // Aufruf nur mit Write-Lock: geloeschte Nummern entfernen und die Nummern neu vergeben; die sortierten Namen
+    // bleiben unveraendert
+    private void kompaktieren() {
+        log.debug("kompaktieren: {} geloeschte, {} eingetragene Vereine", geloescht, nummern.size());
+        final var alteIds = new ArrayList<>(ids);
+        final var alteNamen = new ArrayList<>(namen);
+        final var alteNormalisierteNamen = new ArrayList<>(normalisierteNamen);
+        ids.clear();
+        namen.clear();
+        normalisierteNamen.clear();
+        nummern.clear();
+        postings.clear();
+        geloescht = 0;
+        for (var i = 0; i < alteIds.size(); i++) {
+            final var id = alteIds.get(i);
+            if (id != null) {
+                indizieren(id, alteNamen.get(i), alteNormalisierteNamen.get(i));
+            }
+        }
+    }
+
+    /**
+     * Einen Namen für den Index normalisieren: Kleinbuchstaben ohne diakritische Zeichen und "ß" als "ss". Damit
+     * unterscheidet der Index wie die Collation utf8mb4_0900_ai_ci (Default bei MySQL 8) weder Groß- und
+     * Kleinschreibung noch Akzente, d.h. "munchen" findet auch "München". Bei einer Collation, die Akzente
+     * unterscheidet, liefert der Index evtl. mehr Kandidaten als die DB; sie werden durch das Prädikat auf der Spalte
+     * name herausgefiltert, das die Suche in {@link VereinReadService} immer zusätzlich enthält. Weitere Regeln einer
+     * Collation, z.B. "æ" als "ae", bildet der Index nicht ab.
+     *
+     * @param name Der Name oder null
+     * @return Der normalisierte Name, bei null ein Leerstring
+     */
+    static String normalize(@Nullable final String name) {
+        if (name == null) {
+            return "";
+        }
+        final var kleinbuchstaben = name.toLowerCase(Locale.ROOT);
+        // ASCII ohne Normalizer, z.B. beim Aufbau mit vielen Namen
+        if (kleinbuchstaben.chars().allMatch(c -> c < ASCII)) {
+            return kleinbuchstaben;
+        }
+        return DIAKRITISCHE_ZEICHEN.matcher(Normalizer.normalize(kleinbuchstaben, Normalizer.Form.NFD))
+            .replaceAll("")
+            .replace("ß", "ss");
+    }
+
+    // 3 Zeichen zu je 16 Bit als long
+    private static long trigramm(final String name, final int index) {
+        return (long) name.charAt(index) << 32 | (long) name.charAt(index + 1) << 16 | name.charAt(index + 2);
+    }
+
+    /**
+     * Schlüssel für die sortierten Namen: zuerst nach dem normalisierten Namen, damit alle Namen zu einem Präfix
+     * unabhängig von Groß- und Kleinschreibung hintereinander liegen, und danach nach dem Namen selbst.
+     *
+     * @param normalized Der normalisierte Name
+     * @param name Der Name
+     */
+    private record Schluessel(String normalized, String name) implements Comparable<Schluessel> {
+        @Override
+        public int compareTo(final Schluessel other) {
+            final var result = normalized.compareTo(other.normalized);
+            return result == 0 ? name.compareTo(other.name) : result;
+        }
+    }
+
+    /**
+     * Aufsteigend sortierte Nummern der Vereine zu einem Trigramm.
+     */
+    private static final class Postings {
+        private int[] nummern = new int[INITIAL_CAPACITY];
+        private int size;
+
+        void add(final int nummer) {
+            // ein Trigramm kann in einem Namen mehrfach vorkommen
+            if (size > 0 && nummern[size - 1] == nummer) {
+                return;
+            }
+            if (size == nummern.length) {
+                nummern = Arrays.copyOf(nummern, size * 2);
+            }
+            nummern[size++] = nummer;
+        }
+    }
+}
@@ -16,21 +16,37 @@
  */
 package com.acme.verein.service;
 
+import com.acme.verein.entity.Umsatz;
 import com.acme.verein.entity.Verein;
+import com.acme.verein.entity.Verein_;
+import com.acme.verein.repository.VereinProjection;
 import com.acme.verein.repository.VereinRepository;
+import com.acme.verein.repository.VereinUmsatz;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
 import com.acme.verein.repository.Fussballverein;
 import com.acme.verein.repository.FussballvereinServiceException;
 import com.acme.verein.repository.FussballvereinRepository;
+import com.acme.verein.repository.SpecBuilder;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Anwendungslogik für Vereine.
@@ -46,8 +62,24 @@ import java.util.UUID;
 @RequiredArgsConstructor
 @Slf4j
 public class VereinReadService {
+    /**
+     * Maximale Anzahl an Vereinen je Seite bei {@link #findSeite}.
+     */
+    public static final int MAX_LIMIT = 100;
+
+    /**
+     * Maximale Anzahl an Treffern aus {@link VereinNameIndex}, die über ihre IDs gelesen werden. Bei mehr Treffern
+     * ist die Suche nicht selektiv und der Name wird direkt in der DB gesucht.
+     */
+    static final int MAX_INDEX_TREFFER = 1_000;
+
+    private static final Fussballverein NOT_AVAILABLE = new Fussballverein("N/A", "N/A");
+    private static final Fussballverein EXCEPTION = new Fussballverein("Exception", "N/A");
+
     private final VereinRepository repo;
     private final FussballvereinRepository fussballvereinRepo;
+    private final VereinNameIndex nameIndex;
+    private final SpecBuilder specBuilder;
 
     /**
      * Einen Vereine anhand seiner ID suchen.
@@ -63,21 +95,33 @@ public class VereinReadService {
         // admin: Vereinndaten evtl. nicht gefunden
         final var verein = vereinOpt.orElseThrow(() -> new NotFoundException(id));
         log.debug("findById: {}", verein);
-        //final var vereinsname = fetchFussballvereinById(verein.getFussballvereinId()).vereinsname();
-        //verein.setFussballvereinVereinsname(vereinsname);
-        //final var email = fetchEmailById(verein.getFussballvereinId());
-       // verein.setFussballvereinEmail(email);
+        // Fussballvereindaten nur bei Bedarf, z.B. fuer das GraphQL-Feld "fussballverein": findFussballvereine()
         return verein;
     }
 
     /**
-     * Vereine anhand von Suchkriterien als Collection suchen.
+     * Die aktuelle Versionsnummer eines Vereins suchen, ohne den Verein zu lesen.
+     *
+     * @param id Die ID des Vereins
+     * @return Die aktuelle Versionsnummer
+     * @throws NotFoundException Falls kein Verein gefunden wurde
+     */
+    public int findVersionById(final UUID id) {
+        log.debug("findVersionById: id={}", id);
+        final var version = repo.findVersionById(id).orElseThrow(() -> new NotFoundException(id));
+        log.debug("findVersionById: version={}", version);
+        return version;
+    }
+
+    /**
+     * Vereine anhand von Suchkriterien als Collection suchen. Die Suchkriterien werden durch {@link SpecBuilder} zu
+     * einer WHERE-Klausel verknüpft. Für einen Teilstring im Namen schränken die Treffer aus
+     * {@link VereinNameIndex} die Suche zusätzlich auf Primärschlüsselwerte ein.
      *
      * @param suchkriterien Die Suchkriterien
      * @return Die gefundenen Vereine oder eine leere Liste
-     * @throws NotFoundException Falls keine Vereine gefunden wurden
+     * @throws NotFoundException Falls keine Vereine gefunden wurden oder ein Suchkriterium ungültig ist
      */
-    @SuppressWarnings({"ReturnCount", "NestedIfDepth", "CyclomaticComplexity"})
     public @NonNull Collection<Verein> find(@NonNull final Map<String, List<String>> suchkriterien) {
         log.debug("find: suchkriterien={}", suchkriterien);
 
@@ -85,31 +129,8 @@ public class VereinReadService {
             return repo.findAll();
         }
 
-        if (suchkriterien.size() == 1) {
-            final var namen = suchkriterien.get("name");
-            if (namen != null && namen.size() == 1) {
-                final var vereine = repo.findByName(namen.get(0));
-                if (vereine.isEmpty()) {
-                    throw new NotFoundException(suchkriterien);
-                }
-                log.debug("find (name): {}", vereine);
-                return vereine;
-            }
-
-            final var emails = suchkriterien.get("email");
-            if (emails != null && emails.size() == 1) {
-                final var verein = repo.findByEmail(emails.get(0));
-                if (verein.isEmpty()) {
-                    throw new NotFoundException(suchkriterien);
-                }
-                final var vereine = List.of(verein.get());
-                log.debug("find (email): {}", vereine);
-                return vereine;
-            }
-        }
-
-
-        final var vereine = repo.findAll();
+        final var spec = toSpec(suchkriterien).orElseThrow(() -> new NotFoundException(suchkriterien));
+        final var vereine = repo.findAll(spec, Sort.by(Verein_.ID));
         if (vereine.isEmpty()) {
             throw new NotFoundException(suchkriterien);
         }
@@ -118,15 +139,37 @@ public class VereinReadService {
     }
 
     /**
-     * Abfrage, welche Namen es zu einem Präfix gibt.
+     * Die Umsätze zu mehreren Vereinen mit einem SELECT suchen.
+     *
+     * @param vereinIds Die IDs der Vereine
+     * @return Die Umsätze je Verein-ID. Vereine ohne Umsatz sind nicht enthalten.
+     */
+    public Map<UUID, Umsatz> findUmsaetze(final Collection<UUID> vereinIds) {
+        log.debug("findUmsaetze: vereinIds={}", vereinIds);
+        if (vereinIds.isEmpty()) {
+            return Map.of();
+        }
+        final var umsaetze = repo.findUmsaetze(vereinIds)
+            .stream()
+            .collect(Collectors.toMap(VereinUmsatz::vereinId, VereinUmsatz::umsatz));
+        log.debug("findUmsaetze: {}", umsaetze);
+        return umsaetze;
+    }
+
+    /**
+     * Abfrage, welche Namen es zu einem Präfix gibt, z.B. für die Autovervollständigung. Die Namen werden aus
+     * {@link VereinNameIndex} gelesen und nur vor dessen Aufbau in der DB gesucht.
      *
      * @param prefix Name-Präfix.
-     * @return Die passenden Namen.
+     * @param limit Maximale Anzahl an Namen, höchstens {@value #MAX_LIMIT}
+     * @return Die passenden Namen in alphabetischer Reihenfolge.
      * @throws NotFoundException Falls keine Namen gefunden wurden.
      */
-    public @NonNull Collection<String> findNamenByPrefix(final String prefix) {
-        log.debug("findNamenByPrefix: {}", prefix);
-        final var namen = repo.findNamenByPrefix(prefix);
+    public @NonNull Collection<String> findNamenByPrefix(final String prefix, final int limit) {
+        log.debug("findNamenByPrefix: prefix={}, limit={}", prefix, limit);
+        final var maxAnzahl = Math.max(1, Math.min(limit, MAX_LIMIT));
+        final var namen = nameIndex.findNamenByPrefix(prefix, maxAnzahl)
+            .orElseGet(() -> repo.findNamenByPrefix(prefix, PageRequest.ofSize(maxAnzahl)));
         if (namen.isEmpty()) {
             throw new NotFoundException();
         }
@@ -134,78 +177,234 @@ public class VereinReadService {
         return namen;
     }
 
+    /**
+     * Fussballvereine zu mehreren Fussballverein-IDs gebündelt suchen, ohne auf das Ergebnis zu warten.
+     *
+     * @param fussballvereinIds Die IDs der gesuchten Fussballvereine.
+     * @return Mono mit einer Map der gefundenen Fussballvereine. Nicht gefundene IDs sind nicht enthalten. Falls beim
+     *     Zugriff auf den Microservice "fussballverein" eine Exception eingetreten ist, wird für jede ID ein
+     *     Platzhalter geliefert.
+     */
+    public Mono<Map<UUID, Fussballverein>> findFussballvereine(final Collection<UUID> fussballvereinIds) {
+        log.debug("findFussballvereine: fussballvereinIds={}", fussballvereinIds);
+        if (fussballvereinIds.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return fetchFussballvereineByIds(fussballvereinIds);
+    }
+
+    /**
+     * Eine Seite von Vereinen mit "Keyset Pagination" ermitteln: statt mit OFFSET wird ab dem letzten Verein der
+     * vorherigen Seite gelesen, so dass Antwortzeit und Speicherbedarf nicht von der Größe der Tabelle abhängen.
+     *
+     * @param sortierung Die Sortierung für die erste Seite, bei weiteren Seiten gilt die Sortierung aus nach
+     * @param nach Die Position nach dem letzten Verein der vorherigen Seite oder null für die erste Seite
+     * @param limit Die gewünschte Seitengröße, höchstens {@value #MAX_LIMIT}
+     * @param embedFussballverein Flag, ob die Vereine mit den Daten ihrer Fussballvereine angereichert werden
+     * @return Die Vereine der Seite und ob es eine weitere Seite gibt
+     */
+    public Slice<Verein> findSeite(
+        final Keyset.Sortierung sortierung,
+        @Nullable final Keyset nach,
+        final int limit,
+        final boolean embedFussballverein
+    ) {
+        log.debug("findSeite: sortierung={}, nach={}, limit={}", sortierung, nach, limit);
+        final var pageable = PageRequest.ofSize(Math.max(1, Math.min(limit, MAX_LIMIT)));
+        final Slice<VereinProjection> seite;
+        if (nach == null) {
+            seite = sortierung == Keyset.Sortierung.NAME
+                ? repo.findSliceOrderByNameAndId(pageable)
+                : repo.findSliceOrderById(pageable);
+        } else {
+            seite = nach.sortierung() == Keyset.Sortierung.NAME
+                ? repo.findSliceAfterNameAndId(nach.name(), nach.id(), pageable)
+                : repo.findSliceAfterId(nach.id(), pageable);
+        }
+        final var vereine = seite.map(VereinProjection::toVerein);
+        if (embedFussballverein) {
+            enrich(vereine.getContent());
+        }
+        log.debug("findSeite: {} Vereine, hasNext={}", vereine.getNumberOfElements(), vereine.hasNext());
+        return vereine;
+    }
 
+    /**
+     * Eine Seite von Vereinen zu Suchkriterien mit "Keyset Pagination" nach der ID ermitteln, z.B. für eine
+     * Connection der GraphQL-Schnittstelle. Ohne Suchkriterien werden dieselben Queries wie bei
+     * {@link #findSeite(Keyset.Sortierung, Keyset, int, boolean)} verwendet, sonst wird die Position nach der
+     * vorherigen Seite mit den Suchkriterien zu einer WHERE-Klausel verknüpft.
+     *
+     * @param suchkriterien Die Suchkriterien, ggf. leer
+     * @param nach Die Position nach dem letzten Verein der vorherigen Seite oder null für die erste Seite
+     * @param limit Die gewünschte Seitengröße, höchstens {@value #MAX_LIMIT}
+     * @return Die Vereine der Seite und ob es eine weitere Seite gibt
+     * @throws NotFoundException Falls ein Suchkriterium ungültig ist
+     * @throws InvalidArgumentException Falls die Position nicht nach der ID sortiert ist
+     */
+    public Slice<Verein> findSeite(
+        final Map<String, List<String>> suchkriterien,
+        @Nullable final Keyset nach,
+        final int limit
+    ) {
+        return findSeite(suchkriterien, nach, limit, false);
+    }
 
     /**
-     * Vereine zur Fussballverein-ID suchen.
+     * Eine Seite von Vereinen zu Suchkriterien wie bei {@link #findSeite(Map, Keyset, int)} ermitteln und bei Bedarf
+     * mit den Daten ihrer Fussballvereine anreichern. Ist die ID des Fussballvereins das einzige Suchkriterium,
+     * werden Projektionen statt Entities gelesen.
      *
-     * @param fussballvereinId Die Id des gegebenen Fussballvereinn.
-     * @return Die gefundenen Vereine.
-     * @throws NotFoundException Falls keine Vereine gefunden wurden.
+     * @param suchkriterien Die Suchkriterien, ggf. leer
+     * @param nach Die Position nach dem letzten Verein der vorherigen Seite oder null für die erste Seite
+     * @param limit Die gewünschte Seitengröße, höchstens {@value #MAX_LIMIT}
+     * @param embedFussballverein Flag, ob die Vereine mit den Daten ihrer Fussballvereine angereichert werden
+     * @return Die Vereine der Seite und ob es eine weitere Seite gibt
+     * @throws NotFoundException Falls ein Suchkriterium ungültig ist
+     * @throws InvalidArgumentException Falls die Position nicht nach der ID sortiert ist
      */
-    public Collection<Verein> findByFussballvereinId(final UUID fussballvereinId) {
-        log.debug("findByFussballvereinId: fussballvereinId={}", fussballvereinId);
+    public Slice<Verein> findSeite(
+        final Map<String, List<String>> suchkriterien,
+        @Nullable final Keyset nach,
+        final int limit,
+        final boolean embedFussballverein
+    ) {
+        log.debug("findSeite: suchkriterien={}, nach={}, limit={}", suchkriterien, nach, limit);
+        // auch ohne Suchkriterien, sonst wuerde ein Cursor aus einem REST-Link mit sort=name nach dem Namen sortieren
+        if (nach != null && nach.sortierung() != Keyset.Sortierung.ID) {
+            throw new InvalidArgumentException("Nur ein Cursor mit Sortierung nach der ID ist zulaessig");
+        }
+        if (suchkriterien.isEmpty()) {
+            return findSeite(Keyset.Sortierung.ID, nach, limit, embedFussballverein);
+        }
 
-        final var vereine = repo.findByFussballvereinId(fussballvereinId);
-        if (vereine.isEmpty()) {
-            throw new NotFoundException();
+        final var anzahl = Math.max(1, Math.min(limit, MAX_LIMIT));
+        final var fussballvereinIds = suchkriterien.get(SpecBuilder.FUSSBALLVEREIN_ID);
+        if (suchkriterien.size() == 1 && fussballvereinIds != null && fussballvereinIds.size() == 1) {
+            return findSeiteByFussballvereinId(suchkriterien, nach, anzahl, embedFussballverein);
         }
 
-        final var fussballverein = fetchFussballvereinById(fussballvereinId);
-        final var vereinsname = fussballverein == null ? null : fussballverein.vereinsname();
-        final var email = fetchEmailById(fussballvereinId);
-        log.trace("findByFussballvereinId: nachname={}, email={}", vereinsname, email);
-        vereine.forEach(verein -> {
-            verein.setFussballvereinVereinsname(vereinsname);
-            verein.setFussballvereinEmail(email);
-        });
+        final var spec = toSpec(suchkriterien);
+        if (spec.isEmpty()) {
+            return new SliceImpl<>(List.of(), PageRequest.ofSize(anzahl), false);
+        }
+        final var seite = repo.findSlice(
+            nach == null ? spec.get() : spec.get().and(SpecBuilder.nachId(nach.id())),
+            Sort.by(Verein_.ID),
+            anzahl
+        );
+        if (embedFussballverein) {
+            enrich(seite.getContent());
+        }
+        log.debug("findSeite: {} Vereine, hasNext={}", seite.getNumberOfElements(), seite.hasNext());
+        return seite;
+    }
 
-        log.trace("findByFussballvereinId: vereine={}", vereine);
-        return vereine;
+    // Projektionen statt Entities: kein Persistenzkontext und kein Dirty Checking
+    private Slice<Verein> findSeiteByFussballvereinId(
+        final Map<String, List<String>> suchkriterien,
+        @Nullable final Keyset nach,
+        final int anzahl,
+        final boolean embedFussballverein
+    ) {
+        final UUID fussballvereinId;
+        try {
+            fussballvereinId = UUID.fromString(suchkriterien.get(SpecBuilder.FUSSBALLVEREIN_ID).get(0));
+        } catch (final IllegalArgumentException ex) {
+            throw new NotFoundException(suchkriterien);
+        }
+        final var pageable = PageRequest.ofSize(anzahl);
+        final var seite = (nach == null
+            ? repo.findProjectionsByFussballvereinId(fussballvereinId, pageable)
+            : repo.findProjectionsByFussballvereinIdAfterId(fussballvereinId, nach.id(), pageable))
+            .map(VereinProjection::toVerein);
+        if (embedFussballverein && seite.hasContent()) {
+            // Vereinsname und Emailadresse mit einem einzigen GraphQL-Request
+            final var fussballverein = fetchFussballvereinById(fussballvereinId).block();
+            final var vereinsname = fussballverein == null ? null : fussballverein.vereinsname();
+            final var email = fussballverein == null ? null : fussballverein.email();
+            seite.forEach(verein -> {
+                verein.setFussballvereinVereinsname(vereinsname);
+                verein.setFussballvereinEmail(email);
+            });
+        }
+        log.debug(
+            "findSeiteByFussballvereinId: {} Vereine, hasNext={}",
+            seite.getNumberOfElements(),
+            seite.hasNext()
+        );
+        return seite;
+    }
+
+    // Leeres Optional, falls laut VereinNameIndex kein Name passt
+    private Optional<Specification<Verein>> toSpec(final Map<String, List<String>> suchkriterien) {
+        final var spec = specBuilder.build(suchkriterien)
+            .orElseThrow(() -> new NotFoundException(suchkriterien));
+        final var namen = suchkriterien.get(SpecBuilder.NAME);
+        final var treffer = namen == null ? Optional.<List<UUID>>empty() : findIdsByName(namen.get(0));
+        if (treffer.isPresent() && treffer.get().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(treffer.map(ids -> spec.and(SpecBuilder.idIn(ids))).orElse(spec));
+    }
+
+    // IDs aus dem Index nur bei einer selektiven Suche, sonst reicht die WHERE-Klausel
+    private Optional<List<UUID>> findIdsByName(final String name) {
+        final var ids = nameIndex.find(name)
+            .filter(treffer -> treffer.size() <= MAX_INDEX_TREFFER);
+        log.trace("findIdsByName: {}", ids);
+        return ids;
     }
 
     /**
-     * Alle Vereine ermitteln.
+     * Vereine gebündelt mit den Daten ihrer Fussballvereine anreichern: die unterschiedlichen Fussballverein-IDs werden
+     * gesammelt, je ID genau einmal angefragt und die Ergebnisse im Hauptspeicher zugeordnet.
      *
-     * @return Alle Vereine.
+     * @param vereine Die anzureichernden Vereine.
      */
-    public Collection<Verein> findAll() {
-        final var vereine = repo.findAll();
+    private void enrich(final Collection<Verein> vereine) {
+        final var fussballvereinIds = vereine.stream()
+            .map(Verein::getFussballvereinId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        log.debug("enrich: fussballvereinIds={}", fussballvereinIds);
+        if (fussballvereinIds.isEmpty()) {
+            return;
+        }
+
+        final var fussballvereine = fetchFussballvereineByIds(fussballvereinIds).block();
+        if (fussballvereine == null) {
+            return;
+        }
         vereine.forEach(verein -> {
             final var fussballvereinId = verein.getFussballvereinId();
-            final var fussballverein = fetchFussballvereinById(fussballvereinId);
-            final var email = fetchEmailById(fussballvereinId);
+            if (fussballvereinId == null) {
+                return;
+            }
+            final var fussballverein = fussballvereine.getOrDefault(fussballvereinId, NOT_AVAILABLE);
             verein.setFussballvereinVereinsname(fussballverein.vereinsname());
-            verein.setFussballvereinEmail(email);
+            verein.setFussballvereinEmail(fussballverein.email());
         });
-        return vereine;
     }
 
-    private Fussballverein fetchFussballvereinById(final UUID fussballvereinId) {
-        log.debug("findFussballvereinById: fussballvereinId={}", fussballvereinId);
-        try {
-            final var fussballverein = fussballvereinRepo
-                .findById(fussballvereinId)
-                .orElse(new Fussballverein("N/A", "n.a@acme.com"));
-            log.debug("findFussballvereinById: {}", fussballverein);
-            return fussballverein;
-        } catch (final FussballvereinServiceException ex) {
-            log.debug("findFussballvereinById: {}", ex.getRestException().getClass().getSimpleName());
-            return new Fussballverein("Exception", "exception@acme.com");
-        }
+    private Mono<Fussballverein> fetchFussballvereinById(final UUID fussballvereinId) {
+        log.debug("fetchFussballvereinById: fussballvereinId={}", fussballvereinId);
+        return fussballvereinRepo.findByIdAsync(fussballvereinId)
+            .defaultIfEmpty(NOT_AVAILABLE)
+            .onErrorResume(FussballvereinServiceException.class, ex -> {
+                log.debug("fetchFussballvereinById: message = {}", ex.getMessage());
+                return Mono.just(EXCEPTION);
+            });
     }
 
-
-    private String fetchEmailById(final UUID fussballvereinId) {
-        log.debug("findEmailById: fussballvereinId={}", fussballvereinId);
-        final var emailOpt = fussballvereinRepo.findEmailById(fussballvereinId);
-        String email;
-        try {
-            email = emailOpt.orElse("N/A");
-        } catch (final FussballvereinServiceException ex) {
-            log.debug("findEmailById: message = {}", ex.getGraphQlException().getMessage());
-            email = "N/A";
-        }
-        return email;
+    private Mono<Map<UUID, Fussballverein>> fetchFussballvereineByIds(final Collection<UUID> fussballvereinIds) {
+        log.debug("fetchFussballvereineByIds: fussballvereinIds={}", fussballvereinIds);
+        return fussballvereinRepo.findByIdsAsync(fussballvereinIds)
+            .onErrorResume(FussballvereinServiceException.class, ex -> {
+                log.debug("fetchFussballvereineByIds: message = {}", ex.getMessage());
+                return Mono.just(
+                    fussballvereinIds.stream().collect(Collectors.toMap(Function.identity(), id -> EXCEPTION))
+                );
+            });
     }
 }
@@ -21,8 +21,11 @@ import com.acme.verein.repository.VereinRepository;
 import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Objects;
 import java.util.UUID;
@@ -41,6 +44,8 @@ public class VereinWriteService {
     private final VereinRepository repo;
     // https://docs.spring.io/spring-framework/docs/current/reference/html/core.html#validation-beanvalidation
     private final Validator validator;
+    private final VereinNameIndex nameIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Einen neuen Vereine anlegen.
@@ -62,7 +67,12 @@ public class VereinWriteService {
             throw new ConstraintViolationsException(violations);
         }
 
+        // fuer die Suche ueber den Index verein_email_normalized_idx
+        verein.setEmailNormalized(Verein.normalizeEmail(verein.getEmail()));
         final var vereinDB = repo.save(verein);
+        final var id = vereinDB.getId();
+        final var name = vereinDB.getName();
+        afterCommit(() -> nameIndex.put(id, name));
 
         log.debug("create: {}", vereinDB);
         return vereinDB;
@@ -112,7 +122,11 @@ public class VereinWriteService {
         log.trace("update: Kein Konflikt mit der Emailadresse");
 
         vereinDb.set(verein);
+        vereinDb.setEmailNormalized(Verein.normalizeEmail(vereinDb.getEmail()));
         vereinDb = repo.save(vereinDb);
+        final var name = vereinDb.getName();
+        afterCommit(() -> nameIndex.put(id, name));
+        eventPublisher.publishEvent(new VereinGeaendert(id));
         log.debug("update: {}", vereinDb);
         return vereinDb;
     }
@@ -126,5 +140,21 @@ public class VereinWriteService {
     public void deleteById(final UUID id) {
         log.debug("deleteById: id={}", id);
         repo.deleteById(id);
+        afterCommit(() -> nameIndex.remove(id));
+        eventPublisher.publishEvent(new VereinGeaendert(id));
+    }
+
+    // Den Suchindex erst nach erfolgreichem Commit aktualisieren, damit ein Rollback ihn nicht verfaelscht
+    private static void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
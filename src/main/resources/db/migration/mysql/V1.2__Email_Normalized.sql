@@ -0,0 +1,26 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Emailadresse in Kleinbuchstaben, damit die Suche ohne lower() den Index verwenden kann
+-- https://dev.mysql.com/doc/refman/8.0/en/alter-table.html
+
+ALTER TABLE verein ADD COLUMN email_normalized VARCHAR(40) AFTER email;
+
+UPDATE verein SET email_normalized = LOWER(email);
+
+ALTER TABLE verein MODIFY email_normalized VARCHAR(40) NOT NULL;
+
+-- B-Baum fuer exakte Suche und Praefix-Suche mit LIKE 'abc%' als "Range Scan"
+CREATE UNIQUE INDEX verein_email_normalized_idx ON verein(email_normalized);
@@ -0,0 +1,32 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Indexe fuer die Suchkriterien von REST und GraphQL, siehe SpecBuilder
+-- Die Indexe gibt es nur fuer MySQL, weil es nur fuer MySQL Migrationsskripte gibt (db/migration/{vendor})
+-- https://dev.mysql.com/doc/refman/8.0/en/create-index.html
+
+-- Praefix-Suche mit LIKE 'abc%' als "Range Scan": SpecBuilder verwendet ohne lower(), deshalb muss die Collation
+-- Gross- und Kleinschreibung ignorieren ("_ci"). Die Collation wird explizit gesetzt, damit sie nicht von der
+-- Default-Collation des DB-Servers abhaengt.
+-- https://dev.mysql.com/doc/refman/8.0/en/charset-column.html
+ALTER TABLE adresse MODIFY ort VARCHAR(40) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL;
+CREATE INDEX adresse_ort_idx ON adresse(ort);
+
+-- Bereichssuche mit >= bzw. <=
+CREATE INDEX verein_gruendungsdatum_idx ON verein(gruendungsdatum);
+CREATE INDEX umsatz_betrag_idx ON umsatz(betrag);
+
+-- exakte Suche
+CREATE INDEX verein_fussballverein_id_idx ON verein(fussballverein_id);
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.graphql;
+
+import com.acme.verein.service.Cursor;
+import com.acme.verein.service.Keyset;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import static com.acme.verein.config.dev.DevConfig.DEV;
+import static com.acme.verein.graphql.VereinQueryController.MAX_FIRST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.condition.JRE.JAVA_19;
+import static org.junit.jupiter.api.condition.JRE.JAVA_20;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@Tag("integration")
+@Tag("graphql")
+@DisplayName("Seitenweise Suche mit der GraphQL-Query vereineConnection")
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@ActiveProfiles(DEV)
+@EnabledForJreRange(min = JAVA_19, max = JAVA_20)
+@SuppressWarnings("WriteTag")
+class VereinConnectionTest {
+    private static final String GRAPHQL_PATH = "/graphql";
+    private static final int SEITENGROESSE = 2;
+
+    private final WebClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    VereinConnectionTest(@LocalServerPort final int port) {
+        client = WebClient.builder()
+            .baseUrl("http://localhost:" + port)
+            .build();
+    }
+
+    @Test
+    @DisplayName("Alle Vereine seitenweise mit endCursor als after")
+    void alleSeiten() throws IOException {
+        // given
+        final var alle = query("{ vereine { id } }").path("data").path("vereine");
+        final List<String> ids = new ArrayList<>();
+        String after = null;
+        var hasNextPage = true;
+
+        // when
+        while (hasNextPage) {
+            final var afterArg = after == null ? "" : ", after: \"" + after + '"';
+            final var connection = query(
+                "{ vereineConnection(first: " + SEITENGROESSE + afterArg + ") "
+                    + "{ edges { cursor node { id } } pageInfo { hasNextPage hasPreviousPage endCursor } } }"
+            ).path("data").path("vereineConnection");
+            final var edges = connection.path("edges");
+            assertThat(edges.size()).isLessThanOrEqualTo(SEITENGROESSE);
+            edges.forEach(edge -> ids.add(edge.path("node").path("id").asText()));
+            final var pageInfo = connection.path("pageInfo");
+            assertThat(pageInfo.path("hasPreviousPage").asBoolean()).isFalse();
+            hasNextPage = pageInfo.path("hasNextPage").asBoolean();
+            after = pageInfo.path("endCursor").asText();
+        }
+
+        // then
+        assertThat(ids)
+            .hasSize(alle.size())
+            .doesNotHaveDuplicates()
+            .isSorted();
+        assertThat(new HashSet<>(ids)).isEqualTo(idsOf(alle));
+    }
+
+    @Test
+    @DisplayName("Seitenweise Suche mit Suchkriterien")
+    void mitFilter() throws IOException {
+        // when
+        final var connection = query(
+            "{ vereineConnection(first: 1, filter: { ort: \"A\" }) "
+                + "{ edges { node { id } } pageInfo { hasNextPage endCursor } } }"
+        ).path("data").path("vereineConnection");
+        final var naechste = query(
+            "{ vereineConnection(first: 1, after: \"" + connection.path("pageInfo").path("endCursor").asText()
+                + "\", filter: { ort: \"A\" }) { edges { node { id } } } }"
+        ).path("data").path("vereineConnection");
+
+        // then
+        assertThat(connection.path("edges").size()).isEqualTo(1);
+        assertThat(naechste.path("edges").get(0).path("node").path("id").asText())
+            .isGreaterThan(connection.path("edges").get(0).path("node").path("id").asText());
+    }
+
+    @Test
+    @DisplayName("Seitenweise Suche ohne Treffer liefert eine leere Seite")
+    void ohneTreffer() throws IOException {
+        // when
+        final var connection = query(
+            "{ vereineConnection(filter: { name: \"xyzxyz\" }) "
+                + "{ edges { cursor } pageInfo { hasNextPage endCursor } } }"
+        ).path("data").path("vereineConnection");
+
+        // then
+        assertThat(connection.path("edges").size()).isZero();
+        assertThat(connection.path("pageInfo").path("hasNextPage").asBoolean()).isFalse();
+        assertThat(connection.path("pageInfo").path("endCursor").isNull()).isTrue();
+    }
+
+    @ParameterizedTest(name = "[{index}] Argumente: {0}")
+    @ValueSource(strings = {"first: 0", "first: " + (MAX_FIRST + 1), "after: \"ungueltig\""})
+    @DisplayName("Ungueltige Argumente")
+    void ungueltigeArgumente(final String argumente) throws IOException {
+        // when
+        final var response = query("{ vereineConnection(" + argumente + ") { edges { cursor } } }");
+
+        // then
+        assertThat(response.path("errors").size()).isEqualTo(1);
+        assertThat(response.path("errors").get(0).path("extensions").path("classification").asText())
+            .isEqualTo("BAD_REQUEST");
+    }
+
+    @Test
+    @DisplayName("Ungueltiger Cursor ohne Details der Implementierung")
+    void ungueltigerCursor() throws IOException {
+        // when
+        final var response = query("{ vereineConnection(after: \"ungueltig\") { edges { cursor } } }");
+
+        // then
+        assertThat(response.path("errors").get(0).path("message").asText()).isEqualTo("Ungueltiger Cursor");
+    }
+
+    @Test
+    @DisplayName("Cursor mit Sortierung nach dem Namen wird auch ohne Suchkriterien abgelehnt")
+    void cursorNachName() throws IOException {
+        // given
+        final var cursor = Cursor.encode(new Keyset(Keyset.Sortierung.NAME, "Alpha", UUID.randomUUID()));
+
+        // when
+        final var response = query("{ vereineConnection(after: \"" + cursor + "\") { edges { cursor } } }");
+
+        // then
+        assertThat(response.path("errors").size()).isEqualTo(1);
+        assertThat(response.path("errors").get(0).path("extensions").path("classification").asText())
+            .isEqualTo("BAD_REQUEST");
+    }
+
+    private JsonNode query(final String query) throws IOException {
+        final var body = client.post()
+            .uri(GRAPHQL_PATH)
+            .contentType(APPLICATION_JSON)
+            .bodyValue(Map.of("query", query))
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+        return objectMapper.readTree(body);
+    }
+
+    private static HashSet<String> idsOf(final JsonNode vereine) {
+        final var ids = new HashSet<String>();
+        vereine.forEach(verein -> ids.add(verein.path("id").asText()));
+        return ids;
+    }
+}
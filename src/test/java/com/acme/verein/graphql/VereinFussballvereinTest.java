@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.graphql;
+
+import com.acme.verein.stub.FussballvereinStub;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import static com.acme.verein.config.dev.DevConfig.DEV;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.condition.JRE.JAVA_19;
+import static org.junit.jupiter.api.condition.JRE.JAVA_20;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@Tag("integration")
+@Tag("graphql")
+@DisplayName("Feld fussballverein mit @BatchMapping")
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@ActiveProfiles(DEV)
+@EnabledForJreRange(min = JAVA_19, max = JAVA_20)
+@SuppressWarnings("WriteTag")
+class VereinFussballvereinTest {
+    private static final String GRAPHQL_PATH = "/graphql";
+    private static final String HOST = "localhost";
+
+    // Verein-ID und Fussballverein-ID aus V1.1__Insert.sql
+    private static final Map<String, UUID> FUSSBALLVEREIN_IDS = Map.of(
+        "00000000-0000-0000-0000-000000000000", UUID.fromString("30000000-0000-0000-0000-000000000000"),
+        "00000000-0000-0000-0000-000000000001", UUID.fromString("30000000-0000-0000-0000-000000000001"),
+        "00000000-0000-0000-0000-000000000002", UUID.fromString("30000000-0000-0000-0000-000000000002"),
+        "00000000-0000-0000-0000-000000000030", UUID.fromString("30000000-0000-0000-0000-000000000003"),
+        "00000000-0000-0000-0000-000000000040", UUID.fromString("30000000-0000-0000-0000-000000000004"),
+        "00000000-0000-0000-0000-000000000050", UUID.fromString("30000000-0000-0000-0000-000000000005"),
+        "00000000-0000-0000-0000-000000000060", UUID.fromString("30000000-0000-0000-0000-000000000006")
+    );
+    private static final FussballvereinStub STUB = startStub();
+
+    private final WebClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    VereinFussballvereinTest(@LocalServerPort final int port) {
+        client = WebClient.builder()
+            .baseUrl("http://" + HOST + ':' + port)
+            .build();
+    }
+
+    @AfterAll
+    void afterAll() {
+        STUB.close();
+    }
+
+    @Test
+    @DisplayName("Fussballvereine aller Vereine mit einem einzigen Request an fussballverein")
+    void fussballverein() throws IOException {
+        // given
+        STUB.reset();
+
+        // when
+        final var vereine = query("{ vereine { id fussballverein { vereinsname email } } }")
+            .path("data")
+            .path("vereine");
+
+        // then
+        final var gefunden = new HashSet<String>();
+        vereine.forEach(verein -> {
+            final var fussballvereinId = FUSSBALLVEREIN_IDS.get(verein.path("id").asText());
+            if (fussballvereinId == null) {
+                // z.B. durch andere Tests angelegt
+                return;
+            }
+            final var fussballverein = verein.path("fussballverein");
+            assertThat(fussballverein.path("vereinsname").asText())
+                .isEqualTo(FussballvereinStub.vereinsname(fussballvereinId));
+            assertThat(fussballverein.path("email").asText()).isEqualTo(FussballvereinStub.email(fussballvereinId));
+            gefunden.add(verein.path("id").asText());
+        });
+        assertThat(gefunden).hasSizeGreaterThan(1);
+        assertThat(STUB.getGraphQlRequests()).isEqualTo(1);
+        assertThat(STUB.getRestRequests()).isZero();
+    }
+
+    @Test
+    @DisplayName("Ohne das Feld fussballverein kein Request an fussballverein")
+    void ohneFussballverein() throws IOException {
+        // given
+        STUB.reset();
+
+        // when
+        final var vereine = query("{ vereine { id name } }").path("data").path("vereine");
+
+        // then
+        assertThat(vereine.size()).isPositive();
+        assertThat(STUB.getGraphQlRequests()).isZero();
+    }
+
+    private JsonNode query(final String query) throws IOException {
+        final var body = client.post()
+            .uri(GRAPHQL_PATH)
+            .contentType(APPLICATION_JSON)
+            .bodyValue(Map.of("query", query))
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+        return objectMapper.readTree(body);
+    }
+
+    private static FussballvereinStub startStub() {
+        try {
+            return new FussballvereinStub(new HashSet<>(FUSSBALLVEREIN_IDS.values()), Duration.ZERO);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // "fussballverein" ist der Stub statt des Microservice auf Port 8080
+    @TestConfiguration
+    static class StubConfig {
+        @Bean
+        @Primary
+        UriComponentsBuilder stubUriComponentsBuilder() {
+            return UriComponentsBuilder.newInstance()
+                .scheme("http")
+                .host(HOST)
+                .port(STUB.getPort());
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.ClientConfig;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.graphql.client.ClientGraphQlResponse;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("repository")
+@DisplayName("Hedged Requests an den Microservice fussballverein")
+@SuppressWarnings("WriteTag")
+class FussballvereinHedgingTest {
+    private static final Duration MIN_DELAY = Duration.ofMillis(200);
+    private static final Fussballverein ERSTER = new Fussballverein("Erster", "erster@acme.de");
+    private static final Fussballverein HEDGE = new Fussballverein("Hedge", "hedge@acme.de");
+
+    private final FussballvereinProps props = new FussballvereinProps(
+        new FussballvereinProps.Cache(
+            1_000,
+            Duration.ofMinutes(1),
+            Duration.ofSeconds(1),
+            Duration.ofMinutes(10),
+            Duration.ofSeconds(30)
+        ),
+        new FussballvereinProps.Client(
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(2),
+            Duration.ofSeconds(3),
+            32,
+            50,
+            20,
+            Duration.ofSeconds(30)
+        ),
+        new FussballvereinProps.Hedging(true, 0.95, MIN_DELAY, 10)
+    );
+    private MeterRegistry meterRegistry;
+    private GraphQlClientMock graphQlClient;
+    private FussballvereinRepository repo;
+
+    // je Test eine neue HedgingPolicy, die mit schnellen Antworten auf die minimale Wartezeit eingestellt ist
+    @BeforeEach
+    void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        graphQlClient = new GraphQlClientMock();
+        repo = new FussballvereinRepository(
+            graphQlClient.client(),
+            new FussballvereinCache(props, meterRegistry),
+            props,
+            Bulkhead.ofDefaults(ClientConfig.FUSSBALLVEREIN_CLIENT),
+            CircuitBreaker.ofDefaults(ClientConfig.FUSSBALLVEREIN_CLIENT),
+            meterRegistry
+        );
+        IntStream.range(0, HedgingPolicy.MIN_SAMPLES).forEach(i -> repo.findByIdAsync(UUID.randomUUID()).block());
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Die Wartezeit folgt dem Perzentil der beobachteten Antwortzeiten")
+    void delay() {
+        // given
+        final var policy = new HedgingPolicy(new FussballvereinProps.Hedging(true, 0.9, Duration.ofMillis(1), 10));
+
+        // when
+        final var ohneAntwortzeiten = policy.delay();
+        IntStream.rangeClosed(1, 200).forEach(millis -> policy.record(Duration.ofMillis(millis).toNanos()));
+        final var perzentil = policy.delay();
+        // aeltere Antwortzeiten werden verdraengt
+        IntStream.range(0, HedgingPolicy.SAMPLES).forEach(i -> policy.record(Duration.ofMillis(500).toNanos()));
+        final var verdraengt = policy.delay();
+
+        // then
+        assertThat(ohneAntwortzeiten).isNull();
+        assertThat(perzentil).isEqualTo(Duration.ofMillis(180));
+        assertThat(verdraengt).isEqualTo(Duration.ofMillis(500));
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Die Wartezeit wird erst nach weiteren Antwortzeiten neu berechnet")
+    void delayUpdateInterval() {
+        // given
+        final var policy = new HedgingPolicy(new FussballvereinProps.Hedging(true, 0.9, Duration.ofMillis(1), 10));
+        IntStream.range(0, HedgingPolicy.MIN_SAMPLES).forEach(i -> policy.record(Duration.ofMillis(10).toNanos()));
+
+        // when
+        IntStream.range(1, HedgingPolicy.UPDATE_INTERVAL)
+            .forEach(i -> policy.record(Duration.ofMillis(500).toNanos()));
+        final var vorher = policy.delay();
+        policy.record(Duration.ofMillis(500).toNanos());
+        final var nachher = policy.delay();
+
+        // then
+        assertThat(vorher).isEqualTo(Duration.ofMillis(10));
+        assertThat(nachher).isEqualTo(Duration.ofMillis(500));
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Die Wartezeit ist mindestens die minimale Wartezeit")
+    void minDelay() {
+        // given
+        final var policy = new HedgingPolicy(props.hedging());
+
+        // when
+        IntStream.range(0, HedgingPolicy.MIN_SAMPLES).forEach(i -> policy.record(Duration.ofMillis(1).toNanos()));
+
+        // then
+        assertThat(policy.delay()).isEqualTo(MIN_DELAY);
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Kein zweiter Request bei einer Antwort vor der Wartezeit")
+    void keinHedge() {
+        // given
+        final var erster = Sinks.<ClientGraphQlResponse>one();
+        graphQlClient.naechsteAntwort(erster.asMono());
+        final var requests = graphQlClient.requests();
+
+        // when
+        StepVerifier.withVirtualTime(() -> repo.findByIdAsync(UUID.randomUUID()))
+            .expectSubscription()
+            .expectNoEvent(MIN_DELAY.minusMillis(1))
+            .then(() -> erster.tryEmitValue(GraphQlClientMock.antwort(ERSTER)))
+            .expectNext(ERSTER)
+            .verifyComplete();
+
+        // then
+        assertThat(graphQlClient.requests()).isEqualTo(requests + 1);
+        assertThat(meterRegistry.counter("fussballverein.hedges.sent").count()).isZero();
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Genau ein zweiter Request nach der Wartezeit, die erste Antwort gewinnt")
+    void hedge() {
+        // given
+        final var erster = Sinks.<ClientGraphQlResponse>one();
+        final var zweiter = Sinks.<ClientGraphQlResponse>one();
+        final var ersterAbgebrochen = new AtomicBoolean();
+        graphQlClient.naechsteAntwort(erster.asMono().doOnCancel(() -> ersterAbgebrochen.set(true)));
+        graphQlClient.naechsteAntwort(zweiter.asMono());
+        final var requests = graphQlClient.requests();
+
+        // when
+        StepVerifier.withVirtualTime(() -> repo.findByIdAsync(UUID.randomUUID()))
+            .expectSubscription()
+            .expectNoEvent(MIN_DELAY.minusMillis(1))
+            .then(() -> assertThat(graphQlClient.requests()).isEqualTo(requests + 1))
+            .thenAwait(Duration.ofMillis(1))
+            .then(() -> assertThat(graphQlClient.requests()).isEqualTo(requests + 2))
+            // auch bei weiterem Warten kein dritter Request
+            .thenAwait(MIN_DELAY.multipliedBy(5))
+            .then(() -> assertThat(graphQlClient.requests()).isEqualTo(requests + 2))
+            .then(() -> zweiter.tryEmitValue(GraphQlClientMock.antwort(HEDGE)))
+            .expectNext(HEDGE)
+            .verifyComplete();
+
+        // then
+        assertThat(ersterAbgebrochen).isTrue();
+        assertThat(meterRegistry.counter("fussballverein.hedges.sent").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("fussballverein.hedges.won").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.ClientConfig;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.graphql.client.ClientGraphQlResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("repository")
+@DisplayName("Veraltete Fussballvereine liefern und im Hintergrund aktualisieren")
+@SuppressWarnings("WriteTag")
+class FussballvereinRefreshTest {
+    private static final Duration TTL = Duration.ofMinutes(1);
+    private static final Duration REFRESH_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration MAX_WARTEZEIT = Duration.ofSeconds(5);
+    private static final int ANZAHL_THREADS = 16;
+    private static final Fussballverein ALT = new Fussballverein("Alt", "alt@acme.de");
+    private static final Fussballverein NEU = new Fussballverein("Neu", "neu@acme.de");
+
+    private final FussballvereinProps props = new FussballvereinProps(
+        new FussballvereinProps.Cache(1_000, TTL, Duration.ofSeconds(1), Duration.ofMinutes(10), REFRESH_BACKOFF),
+        new FussballvereinProps.Client(
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(2),
+            Duration.ofSeconds(3),
+            32,
+            50,
+            20,
+            Duration.ofSeconds(30)
+        ),
+        new FussballvereinProps.Hedging(false, 0.95, Duration.ofMillis(20), 10)
+    );
+    // Zeit des Caches, damit ein Eintrag ohne Warten veraltet
+    private final AtomicLong nanos = new AtomicLong();
+    private MeterRegistry meterRegistry;
+    private GraphQlClientMock graphQlClient;
+    private FussballvereinCache cache;
+    private FussballvereinRepository repo;
+    private UUID id;
+
+    // je Test ein veralteter Eintrag ALT im Cache
+    @BeforeEach
+    void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        graphQlClient = new GraphQlClientMock();
+        cache = new FussballvereinCache(props, meterRegistry, nanos::get);
+        repo = new FussballvereinRepository(
+            graphQlClient.client(),
+            cache,
+            props,
+            Bulkhead.ofDefaults(ClientConfig.FUSSBALLVEREIN_CLIENT),
+            CircuitBreaker.ofDefaults(ClientConfig.FUSSBALLVEREIN_CLIENT),
+            meterRegistry
+        );
+        id = UUID.randomUUID();
+        graphQlClient.naechsteAntwort(Mono.just(GraphQlClientMock.antwort(ALT)));
+        assertThat(repo.findByIdAsync(id).block()).isEqualTo(ALT);
+        nanos.addAndGet(TTL.plusSeconds(1).toNanos());
+    }
+
+    @AfterEach
+    void afterEach() {
+        repo.dispose();
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Veralteter Eintrag wird sofort geliefert und genau einmal aktualisiert")
+    void veraltet() {
+        // given
+        final var antwort = Sinks.<ClientGraphQlResponse>one();
+        graphQlClient.naechsteAntwort(antwort.asMono());
+
+        // when
+        final var fussballverein = repo.findByIdAsync(id).block();
+
+        // then
+        assertThat(fussballverein).isEqualTo(ALT);
+        warten(() -> graphQlClient.requests() == 2);
+        antwort.tryEmitValue(GraphQlClientMock.antwort(NEU));
+        warten(() -> NEU.equals(repo.findByIdAsync(id).block()));
+        assertThat(graphQlClient.requests()).isEqualTo(2);
+        assertThat(meterRegistry.counter("fussballverein.refreshes").count()).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Nebenlaeufige Zugriffe auf einen veralteten Eintrag aktualisieren ihn nur einmal")
+    void nebenlaeufig() throws Exception {
+        // given
+        final var antwort = Sinks.<ClientGraphQlResponse>one();
+        graphQlClient.naechsteAntwort(antwort.asMono());
+
+        // when
+        final List<Future<Fussballverein>> ergebnisse;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            ergebnisse = IntStream.range(0, ANZAHL_THREADS)
+                .mapToObj(i -> executor.submit(() -> repo.findByIdAsync(id).block()))
+                .toList();
+        }
+
+        // then
+        for (final var ergebnis : ergebnisse) {
+            assertThat(ergebnis.get()).isEqualTo(ALT);
+        }
+        warten(() -> graphQlClient.requests() == 2);
+        antwort.tryEmitValue(GraphQlClientMock.antwort(NEU));
+        warten(() -> NEU.equals(repo.findByIdAsync(id).block()));
+        assertThat(graphQlClient.requests()).isEqualTo(2);
+        assertThat(meterRegistry.counter("fussballverein.refreshes").count()).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Fehlgeschlagene Aktualisierung behaelt den alten Eintrag und wartet bis zum naechsten Versuch")
+    void fehlgeschlagen() {
+        // given
+        graphQlClient.naechsteAntwort(Mono.error(new IllegalStateException("Aktualisierung fehlgeschlagen")));
+
+        // when
+        final var fussballverein = repo.findByIdAsync(id).block();
+        warten(() -> !cache.needsRefresh(id, cache.get(id)));
+        final var nachFehler = repo.findByIdAsync(id).block();
+        final var requestsNachFehler = graphQlClient.requests();
+
+        // then
+        assertThat(fussballverein).isEqualTo(ALT);
+        assertThat(nachFehler).isEqualTo(ALT);
+        assertThat(requestsNachFehler).isEqualTo(2);
+
+        // nach der Wartezeit wird erneut aktualisiert
+        nanos.addAndGet(REFRESH_BACKOFF.plusSeconds(1).toNanos());
+        assertThat(repo.findByIdAsync(id).block()).isEqualTo(ALT);
+        warten(() -> GraphQlClientMock.FUSSBALLVEREIN.equals(repo.findByIdAsync(id).block()));
+        assertThat(graphQlClient.requests()).isEqualTo(3);
+    }
+
+    @SuppressWarnings("BusyWait")
+    private static void warten(final BooleanSupplier bedingung) {
+        final var ende = System.nanoTime() + MAX_WARTEZEIT.toNanos();
+        while (!bedingung.getAsBoolean() && System.nanoTime() < ende) {
+            try {
+                Thread.sleep(10);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        assertThat(bedingung.getAsBoolean()).isTrue();
+    }
+}
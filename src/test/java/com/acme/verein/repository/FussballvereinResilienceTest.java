@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.ClientConfig;
+import com.acme.verein.service.VereinNameIndex;
+import com.acme.verein.service.VereinReadService;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.graphql.client.ClientGraphQlResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@Tag("repository")
+@DisplayName("Deadline, Bulkhead und Circuit Breaker fuer den Microservice fussballverein")
+@SuppressWarnings("WriteTag")
+class FussballvereinResilienceTest {
+    private static final Duration DEADLINE = Duration.ofMillis(200);
+    private static final int MAX_CONCURRENT_CALLS = 2;
+    private static final int SLIDING_WINDOW_SIZE = 4;
+    private static final float FAILURE_RATE_THRESHOLD = 50;
+
+    // die Beans aus ClientConfig, damit die tatsaechliche Konfiguration getestet wird
+    private final ClientConfig clientConfig = new ClientConfig() { };
+    private final FussballvereinProps props = new FussballvereinProps(
+        new FussballvereinProps.Cache(
+            1_000,
+            Duration.ofMinutes(1),
+            Duration.ofSeconds(1),
+            Duration.ofMinutes(10),
+            Duration.ofSeconds(30)
+        ),
+        new FussballvereinProps.Client(
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(2),
+            DEADLINE,
+            MAX_CONCURRENT_CALLS,
+            FAILURE_RATE_THRESHOLD,
+            SLIDING_WINDOW_SIZE,
+            Duration.ofMinutes(1)
+        ),
+        new FussballvereinProps.Hedging(false, 0.95, Duration.ofMillis(20), 10)
+    );
+    private MeterRegistry meterRegistry;
+    private GraphQlClientMock graphQlClient;
+    private CircuitBreaker circuitBreaker;
+    private FussballvereinRepository repo;
+
+    // je Test ein neues Bulkhead und ein neuer Circuit Breaker
+    @BeforeEach
+    void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        graphQlClient = new GraphQlClientMock();
+        circuitBreaker = clientConfig.fussballvereinCircuitBreaker(props, meterRegistry);
+        repo = new FussballvereinRepository(
+            graphQlClient.client(),
+            new FussballvereinCache(props, meterRegistry),
+            props,
+            clientConfig.fussballvereinBulkhead(props, meterRegistry),
+            circuitBreaker,
+            meterRegistry
+        );
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Langsame Antwort: Abbruch nach der Deadline und Ersatzwert im Service")
+    void deadline() {
+        // given
+        graphQlClient.naechsteAntwort(Mono.never());
+        graphQlClient.naechsteAntwort(Mono.never());
+        final var service = new VereinReadService(
+            mock(VereinRepository.class),
+            repo,
+            mock(VereinNameIndex.class),
+            new SpecBuilder()
+        );
+        final var id = UUID.randomUUID();
+
+        // when
+        final var start = System.nanoTime();
+        final var request = repo.findByIdAsync(UUID.randomUUID());
+        final var fussballvereine = service.findFussballvereine(List.of(id)).block();
+        final var dauer = Duration.ofNanos(System.nanoTime() - start);
+
+        // then
+        assertThatThrownBy(request::block)
+            .isInstanceOf(FussballvereinServiceException.class)
+            .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(dauer).isGreaterThanOrEqualTo(DEADLINE).isLessThan(props.client().responseTimeout());
+        assertThat(fussballvereine).hasEntrySatisfying(
+            id,
+            fussballverein -> assertThat(fussballverein.vereinsname()).isEqualTo("Exception")
+        );
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Volles Bulkhead: weitere Requests werden sofort abgewiesen")
+    void bulkhead() {
+        // given
+        final var antworten = IntStream.range(0, MAX_CONCURRENT_CALLS)
+            .mapToObj(i -> Sinks.<ClientGraphQlResponse>one())
+            .toList();
+        antworten.forEach(antwort -> graphQlClient.naechsteAntwort(antwort.asMono()));
+        final var laufend = antworten.stream()
+            .map(antwort -> repo.findByIdAsync(UUID.randomUUID()).toFuture())
+            .toList();
+
+        // when
+        final var start = System.nanoTime();
+        final var abgewiesen = repo.findByIdAsync(UUID.randomUUID());
+
+        // then
+        assertThatThrownBy(abgewiesen::block)
+            .isInstanceOf(FussballvereinServiceException.class)
+            .hasCauseInstanceOf(BulkheadFullException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(DEADLINE);
+        // ein abgewiesener Request ist kein Fehler von "fussballverein"
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isZero();
+
+        // beantwortete Requests geben ihren Platz im Bulkhead frei
+        antworten.forEach(antwort -> antwort.tryEmitValue(GraphQlClientMock.antwort(GraphQlClientMock.FUSSBALLVEREIN)));
+        laufend.forEach(CompletableFuture::join);
+        assertThat(repo.findByIdAsync(UUID.randomUUID()).block()).isEqualTo(GraphQlClientMock.FUSSBALLVEREIN);
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Circuit Breaker oeffnet ab der Fehlerrate und sendet keine Requests mehr")
+    void circuitBreaker() {
+        // given
+        final var fehler = (int) Math.ceil(SLIDING_WINDOW_SIZE * FAILURE_RATE_THRESHOLD / 100);
+        IntStream.range(0, fehler)
+            .forEach(i -> graphQlClient.naechsteAntwort(Mono.error(new IllegalStateException("Fehler " + i))));
+        IntStream.range(0, SLIDING_WINDOW_SIZE).forEach(i -> {
+            final var request = repo.findByIdAsync(UUID.randomUUID());
+            if (i < fehler) {
+                assertThatThrownBy(request::block).isInstanceOf(FussballvereinServiceException.class);
+            } else {
+                assertThat(request.block()).isEqualTo(GraphQlClientMock.FUSSBALLVEREIN);
+            }
+        });
+        final var requests = graphQlClient.requests();
+
+        // when
+        final var kurzschluss = repo.findByIdAsync(UUID.randomUUID());
+
+        // then
+        assertThatThrownBy(kurzschluss::block)
+            .isInstanceOf(FussballvereinServiceException.class)
+            .hasCauseInstanceOf(CallNotPermittedException.class);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(graphQlClient.requests()).isEqualTo(requests);
+        assertThat(meterRegistry.counter(
+            "fussballverein.circuitbreaker.transitions",
+            "from", CircuitBreaker.State.CLOSED.name(),
+            "to", CircuitBreaker.State.OPEN.name()
+        ).count()).isEqualTo(1);
+    }
+}
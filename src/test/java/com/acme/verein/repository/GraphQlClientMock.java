@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.graphql.client.ClientGraphQlResponse;
+import org.springframework.graphql.client.ClientResponseField;
+import org.springframework.graphql.client.GraphQlClient;
+import org.springframework.graphql.client.HttpGraphQlClient;
+import reactor.core.publisher.Mono;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * HttpGraphQlClient als Mock, der die Requests zählt. Jeder Request liefert die nächste vorgegebene Antwort oder,
+ * falls keine vorgegeben ist, sofort einen Fussballverein für jedes Alias.
+ */
+@SuppressWarnings("WriteTag")
+final class GraphQlClientMock {
+    static final Fussballverein FUSSBALLVEREIN = new Fussballverein("Fussballverein", "fussballverein@acme.de");
+
+    private final HttpGraphQlClient client = mock(HttpGraphQlClient.class);
+    private final Queue<Mono<ClientGraphQlResponse>> antworten = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    GraphQlClientMock() {
+        final var spec = mock(GraphQlClient.RequestSpec.class);
+        when(client.document(anyString())).thenReturn(spec);
+        when(spec.variables(anyMap())).thenReturn(spec);
+        // execute() wird bei jeder Subscription in Mono.defer() aufgerufen, d.h. einmal je gesendetem Request
+        when(spec.execute()).thenAnswer(invocation -> {
+            requests.incrementAndGet();
+            final var antwort = antworten.poll();
+            return antwort == null ? Mono.just(antwort(FUSSBALLVEREIN)) : antwort;
+        });
+    }
+
+    HttpGraphQlClient client() {
+        return client;
+    }
+
+    int requests() {
+        return requests.get();
+    }
+
+    void naechsteAntwort(final Mono<ClientGraphQlResponse> antwort) {
+        antworten.add(antwort);
+    }
+
+    static ClientGraphQlResponse antwort(final Fussballverein fussballverein) {
+        final var field = mock(ClientResponseField.class);
+        doReturn(Map.of("vereinsname", fussballverein.vereinsname())).when(field).getValue();
+        when(field.getErrors()).thenReturn(List.of());
+        when(field.toEntity(Fussballverein.class)).thenReturn(fussballverein);
+        final var response = mock(ClientGraphQlResponse.class);
+        when(response.isValid()).thenReturn(true);
+        when(response.field(anyString())).thenReturn(field);
+        return response;
+    }
+}
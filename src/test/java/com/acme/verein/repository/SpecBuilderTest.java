@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Verein;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import static com.acme.verein.config.dev.DevConfig.DEV;
+import static com.acme.verein.repository.SpecBuilder.EMAIL;
+import static com.acme.verein.repository.SpecBuilder.FUSSBALLVEREIN_ID;
+import static com.acme.verein.repository.SpecBuilder.GRUENDUNGSDATUM_BIS;
+import static com.acme.verein.repository.SpecBuilder.GRUENDUNGSDATUM_VON;
+import static com.acme.verein.repository.SpecBuilder.NAME;
+import static com.acme.verein.repository.SpecBuilder.ORT;
+import static com.acme.verein.repository.SpecBuilder.PLZ;
+import static com.acme.verein.repository.SpecBuilder.UMSATZ_MAX;
+import static com.acme.verein.repository.SpecBuilder.UMSATZ_MIN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.condition.JRE.JAVA_19;
+import static org.junit.jupiter.api.condition.JRE.JAVA_20;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+@Tag("repository")
+@DisplayName("Suchkriterien als Specification")
+@SpringBootTest(webEnvironment = NONE)
+@ActiveProfiles(DEV)
+@EnabledForJreRange(min = JAVA_19, max = JAVA_20)
+@SuppressWarnings("WriteTag")
+class SpecBuilderTest {
+    // Vereine aus V1.1__Insert.sql, die von den Tests fuer PUT, PATCH und DELETE nicht geaendert werden
+    private static final Set<UUID> IDS_UNVERAENDERT = Set.of(
+        UUID.fromString("00000000-0000-0000-0000-000000000000"),
+        UUID.fromString("00000000-0000-0000-0000-000000000001"),
+        UUID.fromString("00000000-0000-0000-0000-000000000002"),
+        UUID.fromString("00000000-0000-0000-0000-000000000060")
+    );
+
+    private final SpecBuilder specBuilder;
+    private final VereinRepository repo;
+
+    SpecBuilderTest(final ApplicationContext ctx) {
+        specBuilder = ctx.getBean(SpecBuilder.class);
+        repo = ctx.getBean(VereinRepository.class);
+    }
+
+    @ParameterizedTest(name = "[{index}] Suchkriterium: {0}={1}")
+    @CsvSource({
+        NAME + ",LPH,1 2",
+        NAME + ",%,",
+        EMAIL + ",ALPHA@acme.d,1",
+        EMAIL + ",_,",
+        PLZ + ",1,1",
+        ORT + ",Aa,0 2",
+        ORT + ",aA,0 2",
+        GRUENDUNGSDATUM_VON + ",2022-01-02,0 2 60",
+        GRUENDUNGSDATUM_BIS + ",2022-01-01,1",
+        UMSATZ_MIN + ",10,1 2",
+        UMSATZ_MAX + ",10,0 1",
+        FUSSBALLVEREIN_ID + ",30000000-0000-0000-0000-000000000001,1"
+    })
+    @Tag("integration")
+    @DisplayName("Vereine zu einem Suchkriterium")
+    void build(final String key, final String value, final String erwartet) {
+        // given
+        final Map<String, List<String>> suchkriterien = Map.of(key, List.of(value));
+
+        // when
+        final var ids = findIds(suchkriterien);
+
+        // then
+        assertThat(ids).containsExactlyInAnyOrderElementsOf(toIds(erwartet));
+    }
+
+    @Test
+    @Tag("integration")
+    @DisplayName("Suchkriterien werden mit AND verknuepft")
+    void buildMehrereSuchkriterien() {
+        // given
+        final Map<String, List<String>> suchkriterien = Map.of(
+            NAME, List.of("alpha"),
+            EMAIL, List.of("alpha@"),
+            PLZ, List.of("2"),
+            ORT, List.of("Aal"),
+            GRUENDUNGSDATUM_VON, List.of("2022-01-01"),
+            GRUENDUNGSDATUM_BIS, List.of("2022-12-31"),
+            UMSATZ_MIN, List.of("15"),
+            UMSATZ_MAX, List.of("99.99"),
+            FUSSBALLVEREIN_ID, List.of("30000000-0000-0000-0000-000000000002")
+        );
+
+        // when
+        final var ids = findIds(suchkriterien);
+
+        // then
+        assertThat(ids).containsExactlyInAnyOrderElementsOf(toIds("2"));
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Ohne Suchkriterien gibt es keine Specification")
+    void buildOhneSuchkriterien() {
+        // when
+        final var spec = specBuilder.build(Map.of());
+
+        // then
+        assertThat(spec).isEmpty();
+    }
+
+    @ParameterizedTest(name = "[{index}] Ungueltiges Suchkriterium: {0}={1}")
+    @CsvSource({
+        "unbekannt,x",
+        GRUENDUNGSDATUM_VON + ",31.12.2022",
+        GRUENDUNGSDATUM_BIS + ",gestern",
+        UMSATZ_MIN + ",viel",
+        UMSATZ_MAX + ",1.2.3",
+        FUSSBALLVEREIN_ID + ",keine-uuid"
+    })
+    @Tag("unit")
+    @DisplayName("Unbekannte Suchkriterien und ungueltige Werte")
+    void buildUngueltig(final String key, final String value) {
+        // when
+        final var spec = specBuilder.build(Map.of(NAME, List.of("alpha"), key, List.of(value)));
+
+        // then
+        assertThat(spec).isEmpty();
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Ein Suchkriterium mit mehreren Werten")
+    void buildMehrereWerte() {
+        // when
+        final var spec = specBuilder.build(Map.of(NAME, List.of("alpha", "delta")));
+
+        // then
+        assertThat(spec).isEmpty();
+    }
+
+    private List<UUID> findIds(final Map<String, List<String>> suchkriterien) {
+        final var spec = specBuilder.build(suchkriterien).orElseThrow();
+        return repo.findAll(spec)
+            .stream()
+            .map(Verein::getId)
+            .filter(IDS_UNVERAENDERT::contains)
+            .toList();
+    }
+
+    // z.B. "0 2" fuer die IDs 00000000-0000-0000-0000-000000000000 und 00000000-0000-0000-0000-000000000002
+    private static List<UUID> toIds(final String nummern) {
+        if (nummern == null) {
+            return List.of();
+        }
+        return Arrays.stream(nummern.split(" "))
+            .map(nummer -> UUID.fromString("00000000-0000-0000-0000-" + "0".repeat(12 - nummer.length()) + nummer))
+            .toList();
+    }
+}
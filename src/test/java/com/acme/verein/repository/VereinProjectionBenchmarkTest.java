@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Verein;
+import jakarta.persistence.EntityManager;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import static com.acme.verein.config.dev.DevConfig.DEV;
+import static com.acme.verein.service.VereinReadService.MAX_LIMIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.condition.JRE.JAVA_19;
+import static org.junit.jupiter.api.condition.JRE.JAVA_20;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+@Tag("repository")
+@DisplayName("Projektionen im Vergleich zu Entities bei Listen")
+@SpringBootTest(webEnvironment = NONE)
+@ActiveProfiles(DEV)
+@EnabledForJreRange(min = JAVA_19, max = JAVA_20)
+@SuppressWarnings("WriteTag")
+class VereinProjectionBenchmarkTest {
+    private static final int WIEDERHOLUNGEN = 500;
+    private static final Pageable SEITE = PageRequest.ofSize(MAX_LIMIT);
+
+    private final Logger log = LoggerFactory.getLogger(VereinProjectionBenchmarkTest.class);
+    private final VereinRepository repo;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private UUID fussballvereinId;
+
+    VereinProjectionBenchmarkTest(final ApplicationContext ctx) {
+        repo = ctx.getBean(VereinRepository.class);
+        entityManager = ctx.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(ctx.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+    }
+
+    @BeforeAll
+    void beforeAll() {
+        fussballvereinId = repo.findAll()
+            .stream()
+            .map(Verein::getFussballvereinId)
+            .filter(Objects::nonNull)
+            .findFirst()
+            .orElseThrow();
+    }
+
+    @Test
+    @Tag("integration")
+    @DisplayName("Projektionen belegen keinen Persistenzkontext und liefern dieselben Daten")
+    void persistenzkontext() {
+        // when
+        final var entities = inTransaktion(() -> repo.findByFussballvereinId(fussballvereinId));
+        final var projektionen = inTransaktion(() -> repo.findProjectionsByFussballvereinId(fussballvereinId, SEITE));
+
+        // then
+        // je Verein die Entity und ihre Adresse aus dem EntityGraph, der Umsatz wird nicht geladen
+        assertThat(entities.ergebnis()).isNotEmpty();
+        assertThat(entities.anzahlEntities()).isEqualTo(2 * entities.ergebnis().size());
+        assertThat(entities.anzahlAnweisungen()).isOne();
+        assertThat(projektionen.anzahlEntities()).isZero();
+        assertThat(projektionen.anzahlAnweisungen()).isOne();
+        assertThat(projektionen.ergebnis().getContent())
+            .extracting(VereinProjection::email)
+            .containsExactlyInAnyOrderElementsOf(entities.ergebnis().stream().map(Verein::getEmail).toList());
+    }
+
+    @Test
+    @Tag("perf")
+    @DisplayName("Antwortzeit von Entities und Projektionen")
+    void antwortzeit() {
+        // given: Aufwaermen
+        messen(() -> repo.findByFussballvereinId(fussballvereinId));
+        messen(() -> repo.findProjectionsByFussballvereinId(fussballvereinId, SEITE));
+
+        // when
+        final var dauerEntities = messen(() -> repo.findByFussballvereinId(fussballvereinId));
+        final var dauerProjektionen = messen(() -> repo.findProjectionsByFussballvereinId(fussballvereinId, SEITE));
+
+        // then
+        log.info(
+            "antwortzeit: {} Wiederholungen, Entities {} ms, Projektionen {} ms",
+            WIEDERHOLUNGEN,
+            dauerEntities.toMillis(),
+            dauerProjektionen.toMillis()
+        );
+    }
+
+    private Duration messen(final Supplier<?> abfrage) {
+        final var start = System.nanoTime();
+        for (var i = 0; i < WIEDERHOLUNGEN; i++) {
+            transactionTemplate.execute(status -> abfrage.get());
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private <T> Ergebnis<T> inTransaktion(final Supplier<T> abfrage) {
+        final var statistics = entityManager.getEntityManagerFactory()
+            .unwrap(SessionFactory.class)
+            .getStatistics();
+        return transactionTemplate.execute(status -> {
+            final var anweisungenVorher = statistics.getPrepareStatementCount();
+            final var ergebnis = abfrage.get();
+            final var anzahl = entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+            return new Ergebnis<>(ergebnis, anzahl, statistics.getPrepareStatementCount() - anweisungenVorher);
+        });
+    }
+
+    private record Ergebnis<T>(T ergebnis, int anzahlEntities, long anzahlAnweisungen) {
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import java.sql.DatabaseMetaData;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.test.context.ActiveProfiles;
+import static com.acme.verein.config.dev.DevConfig.DEV;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.junit.jupiter.api.condition.JRE.JAVA_19;
+import static org.junit.jupiter.api.condition.JRE.JAVA_20;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+@Tag("integration")
+@Tag("repository")
+@DisplayName("Ausfuehrungsplaene fuer die Suchkriterien")
+@SpringBootTest(webEnvironment = NONE)
+@ActiveProfiles(DEV)
+@EnabledForJreRange(min = JAVA_19, max = JAVA_20)
+@SuppressWarnings("WriteTag")
+class VereinQueryPlanTest {
+    private static final String INDEX = "verein_email_normalized_idx";
+    private static final List<String> INDEX_ZUGRIFFE = List.of("const", "eq_ref", "ref", "range");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VereinRepository repo;
+
+    VereinQueryPlanTest(final ApplicationContext ctx) {
+        jdbcTemplate = ctx.getBean(JdbcTemplate.class);
+        repo = ctx.getBean(VereinRepository.class);
+    }
+
+    @BeforeAll
+    void beforeAll() throws Exception {
+        final String produkt = JdbcUtils.extractDatabaseMetaData(
+            jdbcTemplate.getDataSource(),
+            DatabaseMetaData::getDatabaseProductName
+        );
+        // EXPLAIN mit den Spalten "type" und "key" gibt es nur bei MySQL
+        assumeTrue("MySQL".equalsIgnoreCase(produkt), "Ausfuehrungsplan nur fuer MySQL");
+    }
+
+    @ParameterizedTest(name = "[{index}] Exakte Suche und Praefix-Suche verwenden den Index: {0}")
+    @ValueSource(strings = {"email_normalized = 'alpha@acme.de'", "email_normalized LIKE 'alph%'"})
+    @DisplayName("Suche nach der normalisierten Emailadresse verwendet den Index")
+    void indexVerwendet(final String bedingung) {
+        // when
+        final var plan = explain("SELECT id FROM verein WHERE " + bedingung);
+
+        // then
+        assertThat(plan.get("key")).isEqualTo(INDEX);
+        assertThat(INDEX_ZUGRIFFE).contains(String.valueOf(plan.get("type")));
+    }
+
+    @ParameterizedTest(name = "[{index}] {0} WHERE {1}")
+    @CsvSource(delimiter = '|', quoteCharacter = '"', value = {
+        "verein|id IN (UUID_TO_BIN('00000000-0000-0000-0000-000000000001'))|PRIMARY",
+        "verein|email_normalized LIKE 'alph%' ESCAPE '!'|verein_email_normalized_idx",
+        "adresse|plz LIKE '1%' ESCAPE '!'|adresse_plz_idx",
+        "adresse|ort LIKE 'Aug%' ESCAPE '!'|adresse_ort_idx",
+        "verein|gruendungsdatum >= '2022-12-31'|verein_gruendungsdatum_idx",
+        "verein|gruendungsdatum <= '2022-01-01'|verein_gruendungsdatum_idx",
+        "umsatz|betrag >= 1000|umsatz_betrag_idx",
+        "umsatz|betrag <= 0|umsatz_betrag_idx",
+        "verein|fussballverein_id = UUID_TO_BIN('30000000-0000-0000-0000-000000000001')|verein_fussballverein_id_idx"
+    })
+    @DisplayName("Jedes Suchkriterium aus SpecBuilder ist ein Praedikat, fuer das es einen Index gibt")
+    void indexFuerSuchkriterium(final String tabelle, final String bedingung, final String index) {
+        // when
+        final var plan = explain("SELECT * FROM " + tabelle + " WHERE " + bedingung);
+
+        // then
+        assertThat(String.valueOf(plan.get("possible_keys")).split(",")).contains(index);
+    }
+
+    @ParameterizedTest(name = "[{index}] Suche mit gemischter Schreibweise: {0}")
+    @ValueSource(strings = {"Alpha@ACME.de", "ALPHA@ACME.D"})
+    @DisplayName("Suche nach Emailadresse unabhaengig von Gross- und Kleinschreibung")
+    void findByEmail(final String email) {
+        // when
+        final var verein = repo.findByEmail(email);
+
+        // then
+        assertThat(verein).isPresent();
+        assertThat(verein.get().getEmailNormalized()).startsWith(email.toLowerCase(Locale.ROOT));
+    }
+
+    private Map<String, Object> explain(final String sql) {
+        return jdbcTemplate.queryForList("EXPLAIN " + sql).get(0);
+    }
+}
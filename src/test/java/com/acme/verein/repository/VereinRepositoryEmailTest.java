@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@Tag("repository")
+@DisplayName("Suche nach der Emailadresse ohne DB")
+@SuppressWarnings("WriteTag")
+class VereinRepositoryEmailTest {
+    @ParameterizedTest(name = "[{index}] Emailadresse: \"{0}\"")
+    @NullAndEmptySource
+    @ValueSource(strings = {" ", "\t"})
+    @Tag("unit")
+    @DisplayName("Ohne Emailadresse kein Treffer und keine Abfrage")
+    void ohneEmail(final String email) {
+        // given
+        final var repo = mock(VereinRepository.class, CALLS_REAL_METHODS);
+
+        // when
+        final var verein = repo.findByEmail(email);
+
+        // then
+        assertThat(verein).isEmpty();
+        verify(repo, never()).findByEmailNormalizedPrefix(any());
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Normalisierter Praefix mit maskierten Platzhaltern")
+    void praefix() {
+        // given
+        final var repo = mock(VereinRepository.class, CALLS_REAL_METHODS);
+
+        // when
+        repo.findByEmail("A_b%C!");
+
+        // then
+        verify(repo).findByEmailNormalizedPrefix("a!_b!%c!!");
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.repository;
+
+import com.acme.verein.entity.Verein;
+import com.acme.verein.service.VereinReadService;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.UUID;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import static com.acme.verein.config.dev.DevConfig.DEV;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.condition.JRE.JAVA_19;
+import static org.junit.jupiter.api.condition.JRE.JAVA_20;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+@Tag("integration")
+@Tag("repository")
+@DisplayName("DB-Zugriffe bei der Suche anhand der ID mit und ohne 2nd-Level-Cache")
+@SpringBootTest(webEnvironment = NONE)
+@ActiveProfiles(DEV)
+@EnabledForJreRange(min = JAVA_19, max = JAVA_20)
+@SuppressWarnings("WriteTag")
+class VereinSecondLevelCacheTest {
+    private static final UUID ID_VORHANDEN = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final int ANZAHL = 100;
+
+    private final Logger log = LoggerFactory.getLogger(VereinSecondLevelCacheTest.class);
+    private final VereinReadService service;
+    private final SessionFactory sessionFactory;
+    private final Statistics statistics;
+
+    VereinSecondLevelCacheTest(final ApplicationContext ctx) {
+        service = ctx.getBean(VereinReadService.class);
+        sessionFactory = ctx.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+    }
+
+    @Test
+    @DisplayName("Entities sind im 2nd-Level-Cache")
+    void cacheable() {
+        // when
+        service.findById(ID_VORHANDEN);
+
+        // then
+        assertThat(sessionFactory.getCache().containsEntity(Verein.class, ID_VORHANDEN)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Wiederholte Suche anhand der ID liest aus dem 2nd-Level-Cache statt aus der DB")
+    void findById() {
+        // given
+        sessionFactory.getCache().evictAllRegions();
+        statistics.clear();
+
+        // when
+        final var startOhneCache = System.nanoTime();
+        for (var i = 0; i < ANZAHL; i++) {
+            sessionFactory.getCache().evictAllRegions();
+            service.findById(ID_VORHANDEN);
+        }
+        final var dauerOhneCache = System.nanoTime() - startOhneCache;
+        final var statementsOhneCache = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        final var startMitCache = System.nanoTime();
+        for (var i = 0; i < ANZAHL; i++) {
+            service.findById(ID_VORHANDEN);
+        }
+        final var dauerMitCache = System.nanoTime() - startMitCache;
+        final var statementsMitCache = statistics.getPrepareStatementCount();
+
+        // then
+        log.info(
+            "findById: {} Aufrufe ohne Cache: {} SQL-Anweisungen in {} ms, mit Cache: {} SQL-Anweisungen in {} ms, "
+                + "Treffer={}, Fehlschlaege={}",
+            ANZAHL,
+            statementsOhneCache,
+            dauerOhneCache / 1_000_000,
+            statementsMitCache,
+            dauerMitCache / 1_000_000,
+            statistics.getSecondLevelCacheHitCount(),
+            statistics.getSecondLevelCacheMissCount()
+        );
+        assertThat(statementsOhneCache).isGreaterThanOrEqualTo(ANZAHL);
+        assertThat(statementsMitCache).isLessThan(ANZAHL);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isPositive();
+    }
+}
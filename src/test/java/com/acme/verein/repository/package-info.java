@@ -14,12 +14,8 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
-package com.acme.verein.repository;
 
 /**
- * Entity-Klasse für den GraphQL-Client.
- *
- * @param email Emailadresse
+ * Tests für den DB-Zugriff.
  */
-record EmailEntity(String email) {
-}
+package com.acme.verein.repository;
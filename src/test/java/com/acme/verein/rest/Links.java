@@ -22,6 +22,7 @@ record Links(
     Link list,
     Link add,
     Link update,
-    Link remove
+    Link remove,
+    Link next
 ) {
 }
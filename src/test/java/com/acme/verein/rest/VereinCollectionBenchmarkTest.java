@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import com.acme.verein.entity.Verein;
+import com.acme.verein.service.Keyset;
+import com.acme.verein.service.VereinReadService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import static com.acme.verein.config.dev.DevConfig.DEV;
+import static com.acme.verein.service.VereinReadService.MAX_LIMIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.condition.JRE.JAVA_19;
+import static org.junit.jupiter.api.condition.JRE.JAVA_20;
+import static org.springframework.hateoas.MediaTypes.HAL_JSON;
+
+@Tag("rest")
+@DisplayName("HAL-Collection mit CollectionModel und mit dem HttpMessageConverter fuer Vereine")
+@SpringBootTest
+@ActiveProfiles(DEV)
+@EnabledForJreRange(min = JAVA_19, max = JAVA_20)
+@SuppressWarnings("WriteTag")
+class VereinCollectionBenchmarkTest {
+    private static final String BASE_URI = "https://localhost:8080/rest";
+    private static final String NEXT_URI = BASE_URI + "?limit=20&cursor=abc";
+    private static final int ANZAHL_ZEILEN = 10_000;
+    private static final int WIEDERHOLUNGEN = 20;
+
+    private final Logger log = LoggerFactory.getLogger(VereinCollectionBenchmarkTest.class);
+    private final VereinCollectionHttpMessageConverter converter;
+    private final ObjectMapper halObjectMapper;
+    private final List<Verein> vereine;
+
+    VereinCollectionBenchmarkTest(final ApplicationContext ctx) {
+        converter = ctx.getBean(VereinCollectionHttpMessageConverter.class);
+        halObjectMapper = ctx.getBean(RequestMappingHandlerAdapter.class)
+            .getMessageConverters()
+            .stream()
+            .filter(c -> c instanceof AbstractJackson2HttpMessageConverter && c.canWrite(VereinModel.class, HAL_JSON))
+            .map(c -> ((AbstractJackson2HttpMessageConverter) c).getObjectMapper())
+            .findFirst()
+            .orElseThrow();
+        vereine = ctx.getBean(VereinReadService.class)
+            .findSeite(Keyset.Sortierung.ID, null, MAX_LIMIT, false)
+            .getContent();
+    }
+
+    @Test
+    @Tag("integration")
+    @DisplayName("Gleiche HAL-Darstellung wie mit CollectionModel")
+    void gleicheDarstellung() throws IOException {
+        // given
+        final var out = new ByteArrayOutputStream();
+
+        // when
+        converter.write(new VereinCollection(vereine, BASE_URI, NEXT_URI), HAL_JSON, outputMessage(out));
+        final var erwartet = halObjectMapper.writeValueAsString(collectionModel(vereine));
+
+        // then
+        assertThat(vereine).isNotEmpty();
+        assertThat(halObjectMapper.readTree(out.toByteArray())).isEqualTo(halObjectMapper.readTree(erwartet));
+    }
+
+    @Test
+    @Tag("integration")
+    @DisplayName("Leere Collection ohne _embedded")
+    void leer() throws IOException {
+        // given
+        final var out = new ByteArrayOutputStream();
+
+        // when
+        converter.write(new VereinCollection(List.of(), BASE_URI, null), HAL_JSON, outputMessage(out));
+
+        // then
+        assertThat(halObjectMapper.readTree(out.toByteArray()).has("_embedded")).isFalse();
+    }
+
+    @Test
+    @Tag("perf")
+    @DisplayName("Allokierte Bytes je Verein mit CollectionModel und mit dem HttpMessageConverter")
+    void allokationen() {
+        // given
+        final var zeilen = new ArrayList<Verein>(ANZAHL_ZEILEN);
+        while (zeilen.size() < ANZAHL_ZEILEN) {
+            zeilen.addAll(vereine.subList(0, Math.min(vereine.size(), ANZAHL_ZEILEN - zeilen.size())));
+        }
+        final Runnable mitCollectionModel = () -> {
+            try {
+                halObjectMapper.writeValue(OutputStream.nullOutputStream(), collectionModel(zeilen));
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        };
+        final Runnable mitConverter = () -> {
+            try {
+                converter.write(
+                    new VereinCollection(zeilen, BASE_URI, NEXT_URI),
+                    HAL_JSON,
+                    outputMessage(OutputStream.nullOutputStream())
+                );
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        };
+        // Aufwaermen
+        allokierteBytes(mitCollectionModel);
+        allokierteBytes(mitConverter);
+
+        // when
+        final var bytesCollectionModel = allokierteBytes(mitCollectionModel) / ANZAHL_ZEILEN;
+        final var bytesConverter = allokierteBytes(mitConverter) / ANZAHL_ZEILEN;
+
+        // then
+        log.info(
+            "allokationen: {} Vereine, CollectionModel {} Bytes je Verein, HttpMessageConverter {} Bytes je Verein",
+            ANZAHL_ZEILEN,
+            bytesCollectionModel,
+            bytesConverter
+        );
+        assertThat(bytesConverter).isLessThan(bytesCollectionModel);
+    }
+
+    // Durchschnitt ueber die Wiederholungen mit den allokierten Bytes des aktuellen Threads
+    private static long allokierteBytes(final Runnable schreiben) {
+        final var threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final var start = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (var i = 0; i < WIEDERHOLUNGEN; i++) {
+            schreiben.run();
+        }
+        return (threadMXBean.getCurrentThreadAllocatedBytes() - start) / WIEDERHOLUNGEN;
+    }
+
+    // wie bisher in VereinGetController: ein VereinModel mit self-Link je Verein
+    private static CollectionModel<VereinModel> collectionModel(final List<Verein> vereine) {
+        final var models = vereine.stream()
+            .map(verein -> {
+                final var model = new VereinModel(verein);
+                model.add(Link.of(BASE_URI + '/' + verein.getId()));
+                return model;
+            })
+            .toList();
+        return CollectionModel.of(models, Link.of(NEXT_URI, IanaLinkRelations.NEXT));
+    }
+
+    private static HttpOutputMessage outputMessage(final OutputStream out) {
+        final var headers = new HttpHeaders();
+        return new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return out;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+}
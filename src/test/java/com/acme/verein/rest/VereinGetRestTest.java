@@ -17,14 +17,23 @@
 package com.acme.verein.rest;
 
 
+import com.acme.verein.stub.FussballvereinStub;
 import com.jayway.jsonpath.JsonPath;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.assertj.core.api.SoftAssertions;
 import org.assertj.core.api.junit.jupiter.InjectSoftAssertions;
 import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -36,8 +45,11 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.hateoas.mediatype.hal.HalLinkDiscoverer;
 import org.springframework.hateoas.client.LinkDiscoverer;
 import org.springframework.test.context.ActiveProfiles;
@@ -51,15 +63,24 @@ import reactor.core.publisher.Mono;
 
 import static com.acme.verein.config.dev.DevConfig.DEV;
 import static com.acme.verein.entity.Verein.NAME_PATTERN;
+import static com.acme.verein.rest.VereinGetController.CURSOR_PARAM;
+import static com.acme.verein.rest.VereinGetController.EMBED_FUSSBALLVEREIN;
+import static com.acme.verein.rest.VereinGetController.EMBED_PARAM;
+import static com.acme.verein.rest.VereinGetController.EXPORT_PATH;
+import static com.acme.verein.rest.VereinGetController.ID_PATTERN;
+import static com.acme.verein.rest.VereinGetController.LIMIT_PARAM;
 import static com.acme.verein.rest.VereinGetController.REST_PATH;
+import static com.acme.verein.rest.VereinGetController.SORT_PARAM;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.condition.JRE.JAVA_19;
 import static org.junit.jupiter.api.condition.JRE.JAVA_20;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.hateoas.MediaTypes.HAL_JSON;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.FORBIDDEN;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
 @Tag("integration")
 @Tag("rest")
@@ -88,6 +109,12 @@ class VereinGetRestTest {
     private static final String NAME_PARAM = "name";
     private static final String EMAIL_PARAM = "email";
     private static final String PLZ_PARAM = "plz";
+    private static final String GRUENDUNGSDATUM_VON_PARAM = "gruendungsdatumVon";
+    private static final String UMSATZ_MIN_PARAM = "umsatzMin";
+    // Fussballvereine aus V1.1__Insert.sql
+    private static final FussballvereinStub STUB = startStub(IntStream.rangeClosed(0, 6)
+        .mapToObj(i -> UUID.fromString("30000000-0000-0000-0000-00000000000" + i))
+        .collect(Collectors.toSet()));
     private final String baseUrl;
     private final WebClient client;
     private final WebClient clientVerein;
@@ -118,6 +145,32 @@ class VereinGetRestTest {
             .build();
         vereinRepo = proxyFactory.createClient(VereinRepository.class);
     }
+    @AfterAll
+    void afterAll() {
+        STUB.close();
+    }
+
+    private static FussballvereinStub startStub(final Set<UUID> fussballvereinIds) {
+        try {
+            return new FussballvereinStub(fussballvereinIds, Duration.ZERO);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // "fussballverein" ist der Stub statt des Microservice auf Port 8080
+    @TestConfiguration
+    static class StubConfig {
+        @Bean
+        @Primary
+        UriComponentsBuilder stubUriComponentsBuilder() {
+            return UriComponentsBuilder.newInstance()
+                .scheme(SCHEMA)
+                .host(HOST)
+                .port(STUB.getPort());
+        }
+    }
+
     @Test
     @DisplayName("Immer erfolgreich")
     void immerErfolgreich() {
@@ -148,6 +201,157 @@ class VereinGetRestTest {
             .isNotNull()
             .isNotEmpty();
     }
+    @Test
+    @DisplayName("Suche nach allen Vereine ohne eingebettete Fussballvereindaten")
+    @SuppressWarnings("DataFlowIssue")
+    void findAllOhneEmbed() {
+        // given
+        final MultiValueMap<String, String> suchkriterien = new LinkedMultiValueMap<>();
+
+        // when
+        final var vereine = vereinRepo.getVereine(suchkriterien.toSingleValueMap()).block();
+
+        // then
+        assertThat(vereine).isNotNull();
+        final var embedded = vereine._embedded();
+        assertThat(embedded).isNotNull();
+        embedded.vereine().forEach(verein -> {
+            softly.assertThat(verein.fussballvereinVereinsname()).isNull();
+            softly.assertThat(verein.fussballvereinEmail()).isNull();
+        });
+    }
+    @Test
+    @DisplayName("Suche nach allen Vereine mit eingebetteten Fussballvereindaten")
+    @SuppressWarnings("DataFlowIssue")
+    void findAllMitEmbed() {
+        // given
+        final var suchkriterien = Map.of(EMBED_PARAM, EMBED_FUSSBALLVEREIN);
+
+        // when
+        final var vereine = vereinRepo.getVereine(suchkriterien).block();
+
+        // then
+        assertThat(vereine).isNotNull();
+        final var embedded = vereine._embedded();
+        assertThat(embedded).isNotNull();
+        assertThat(embedded.vereine()).anyMatch(verein -> verein.fussballvereinId() != null);
+        embedded.vereine()
+            .stream()
+            .filter(verein -> verein.fussballvereinId() != null)
+            .forEach(verein -> {
+                softly.assertThat(verein.fussballvereinVereinsname())
+                    .isEqualTo(FussballvereinStub.vereinsname(verein.fussballvereinId()));
+                softly.assertThat(verein.fussballvereinEmail())
+                    .isEqualTo(FussballvereinStub.email(verein.fussballvereinId()));
+            });
+    }
+    @Test
+    @DisplayName("Seitenweise Suche nach allen Vereine mit Cursor")
+    @SuppressWarnings("DataFlowIssue")
+    void findAllSeitenweise() {
+        // given
+        final var limit = "1";
+
+        // when
+        final var ersteSeite = vereinRepo.getVereine(Map.of(LIMIT_PARAM, limit)).block();
+
+        // then
+        assertThat(ersteSeite).isNotNull();
+        assertThat(ersteSeite._embedded().vereine()).hasSize(1);
+        final var next = ersteSeite._links().next();
+        assertThat(next).isNotNull();
+        final var cursor = UriComponentsBuilder.fromUriString(next.href())
+            .build()
+            .getQueryParams()
+            .getFirst(CURSOR_PARAM);
+        assertThat(cursor).isNotBlank();
+
+        final var zweiteSeite = vereinRepo.getVereine(Map.of(LIMIT_PARAM, limit, CURSOR_PARAM, cursor)).block();
+        assertThat(zweiteSeite).isNotNull();
+        assertThat(zweiteSeite._embedded().vereine()).hasSize(1);
+        softly.assertThat(zweiteSeite._embedded().vereine().get(0)._links().self().href())
+            .isNotEqualTo(ersteSeite._embedded().vereine().get(0)._links().self().href());
+    }
+    @Test
+    @DisplayName("Seitenweise Suche mit Suchkriterien und Cursor")
+    @SuppressWarnings("DataFlowIssue")
+    void findByNameSeitenweise() {
+        // given
+        final var limit = "1";
+
+        // when
+        final var ersteSeite = vereinRepo.getVereine(Map.of(NAME_PARAM, NAME_TEIL, LIMIT_PARAM, limit)).block();
+
+        // then
+        assertThat(ersteSeite).isNotNull();
+        assertThat(ersteSeite._embedded().vereine()).hasSize(1);
+        final var next = ersteSeite._links().next();
+        assertThat(next).isNotNull();
+        final var queryParams = UriComponentsBuilder.fromUriString(next.href())
+            .build()
+            .getQueryParams();
+        assertThat(queryParams.getFirst(NAME_PARAM)).isEqualTo(NAME_TEIL);
+        final var cursor = queryParams.getFirst(CURSOR_PARAM);
+        assertThat(cursor).isNotBlank();
+
+        final var zweiteSeite = vereinRepo.getVereine(
+            Map.of(NAME_PARAM, NAME_TEIL, LIMIT_PARAM, limit, CURSOR_PARAM, cursor)
+        ).block();
+        assertThat(zweiteSeite).isNotNull();
+        assertThat(zweiteSeite._embedded().vereine()).hasSize(1);
+        softly.assertThat(zweiteSeite._embedded().vereine().get(0).name()).containsIgnoringCase(NAME_TEIL);
+        softly.assertThat(zweiteSeite._embedded().vereine().get(0)._links().self().href())
+            .isNotEqualTo(ersteSeite._embedded().vereine().get(0)._links().self().href());
+    }
+
+    @Test
+    @DisplayName("Suche mit Suchkriterien und Sortierung nach dem Namen")
+    void findByNameSortiert() {
+        // when
+        final var statusCode = client
+            .get()
+            .uri(uriBuilder -> uriBuilder.queryParam(NAME_PARAM, NAME_TEIL).queryParam(SORT_PARAM, "name").build())
+            .accept(HAL_JSON)
+            .exchangeToMono(response -> Mono.just(response.statusCode()))
+            .block();
+
+        // then
+        assertThat(statusCode).isEqualTo(BAD_REQUEST);
+    }
+    @Test
+    @DisplayName("Export aller Vereine als NDJSON")
+    void export() {
+        // when
+        final var body = client
+            .get()
+            .uri(EXPORT_PATH)
+            .accept(APPLICATION_NDJSON)
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+
+        // then
+        assertThat(body).isNotBlank();
+        body.lines().forEach(zeile -> {
+            final String id = JsonPath.read(zeile, "$.id");
+            softly.assertThat(id).matches(ID_PATTERN);
+            softly.assertThat(zeile).doesNotContain("_links");
+        });
+    }
+    @Test
+    @DisplayName("Seitenweise Suche mit ungueltigem Cursor")
+    void findAllUngueltigerCursor() {
+        // when
+        final var statusCode = client
+            .get()
+            .uri(uriBuilder -> uriBuilder.queryParam(CURSOR_PARAM, "???").build())
+            .accept(HAL_JSON)
+            .exchangeToMono(response -> Mono.just(response.statusCode()))
+            .block();
+
+        // then
+        assertThat(statusCode).isEqualTo(BAD_REQUEST);
+    }
     @ParameterizedTest(name = "[{index}] Suche mit vorhandenem (Teil-) Namen: teil={0}")
     @ValueSource(strings = NAME_TEIL)
     @DisplayName("Suche mit vorhandenem (Teil-) Namen")
@@ -215,6 +419,48 @@ class VereinGetRestTest {
             });
     }
 
+    @ParameterizedTest(name = "[{index}] Suche mit Name, Gruendungsdatum und Umsatz: name={0}, von={1}, min={2}")
+    @CsvSource(NAME_TEIL + ",2022-01-02,15")
+    @DisplayName("Suche mit mehreren Suchkriterien")
+    void findByNameGruendungsdatumUmsatz(final String name, final String von, final String min) {
+        // given
+        final MultiValueMap<String, String> suchkriterien = new LinkedMultiValueMap<>();
+        suchkriterien.add(NAME_PARAM, name);
+        suchkriterien.add(GRUENDUNGSDATUM_VON_PARAM, von);
+        suchkriterien.add(UMSATZ_MIN_PARAM, min);
+
+        // when
+        final var vereine = vereinRepo.getVereine(suchkriterien.toSingleValueMap()).block();
+
+        // then
+        assertThat(vereine).isNotNull();
+        assertThat(vereine._embedded()).isNotNull();
+        final var vereineList = vereine._embedded().vereine();
+        assertThat(vereineList)
+            .isNotNull()
+            .isNotEmpty();
+        vereineList.forEach(verein -> {
+            softly.assertThat(verein.name()).containsIgnoringCase(name);
+            softly.assertThat(verein.gruendungsdatum()).isAfterOrEqualTo(von);
+        });
+    }
+
+    @ParameterizedTest(name = "[{index}] Suche mit ungueltigem Suchkriterium: {0}={1}")
+    @CsvSource({"unbekannt,x", GRUENDUNGSDATUM_VON_PARAM + ",gestern", UMSATZ_MIN_PARAM + ",viel"})
+    @DisplayName("Suche mit unbekanntem Suchkriterium oder ungueltigem Wert")
+    void findUngueltigesSuchkriterium(final String key, final String value) {
+        // when
+        final var statusCode = client
+            .get()
+            .uri(uriBuilder -> uriBuilder.queryParam(key, value).build())
+            .accept(HAL_JSON)
+            .exchangeToMono(response -> Mono.just(response.statusCode()))
+            .block();
+
+        // then
+        assertThat(statusCode).isEqualTo(NOT_FOUND);
+    }
+
     @SuppressWarnings("OptionalGetWithoutIsPresent")
     @Nested
     @DisplayName("REST-Schnittstelle fuer die Suche anhand der ID")
@@ -390,24 +636,56 @@ class VereinGetRestTest {
             @DisplayName("Suche Namen mit Praefix")
             void findNamen(final String prefix) {
                 // when
-                final var namenStr = client
+                final var namen = client
                     .get()
                     .uri(builder -> builder.pathSegment(NAME_PARAM, prefix).build())
-                    .exchangeToMono(response -> response.bodyToMono(String.class))
+                    .exchangeToMono(response -> response.bodyToMono(String[].class))
                     .block();
 
                 // then
-                assertThat(namenStr)
-                    .isNotNull()
-                    .isNotEmpty();
-                final var tmp = namenStr.replace(" ", "").substring(1);
-                final var namen = tmp.substring(0, tmp.length() - 1).split(",");
                 assertThat(namen)
                     .isNotNull()
                     .isNotEmpty();
                 Arrays.stream(namen)
                     .forEach(name -> assertThat(name).startsWith(prefix));
             }
+
+            @Test
+            @DisplayName("Suche Namen mit Praefix und Limit")
+            void findNamenMitLimit() {
+                // when
+                final var namen = client
+                    .get()
+                    .uri(builder -> builder
+                        .pathSegment(NAME_PARAM, NAME_PREFIX_A)
+                        .queryParam(LIMIT_PARAM, 1)
+                        .build())
+                    .exchangeToMono(response -> response.bodyToMono(String[].class))
+                    .block();
+
+                // then
+                assertThat(namen)
+                    .isNotNull()
+                    .hasSize(1);
+                assertThat(namen[0]).startsWith(NAME_PREFIX_A);
+            }
+
+            @Test
+            @DisplayName("Suche Namen mit Praefix und ungueltigem Limit")
+            void findNamenUngueltigesLimit() {
+                // when
+                final var statusCode = client
+                    .get()
+                    .uri(builder -> builder
+                        .pathSegment(NAME_PARAM, NAME_PREFIX_A)
+                        .queryParam(LIMIT_PARAM, 0)
+                        .build())
+                    .exchangeToMono(response -> Mono.just(response.statusCode()))
+                    .block();
+
+                // then
+                assertThat(statusCode).isEqualTo(BAD_REQUEST);
+            }
         }
 
     }
@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.rest;
+
+import java.util.Locale;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import static com.acme.verein.config.dev.DevConfig.DEV;
+import static com.acme.verein.rest.VereinGetController.EXPORT_PATH;
+import static com.acme.verein.rest.VereinGetController.REST_PATH;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.condition.JRE.JAVA_19;
+import static org.junit.jupiter.api.condition.JRE.JAVA_20;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.hateoas.MediaTypes.HAL_JSON;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+
+@Tag("integration")
+@Tag("rest")
+@Tag("rest_get")
+@DisplayName("Anzahl der SQL-Anweisungen bei Listen unabhaengig von der Anzahl der Vereine")
+@SpringBootTest(
+    webEnvironment = RANDOM_PORT,
+    properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.acme.verein.rest.SqlStatementCounter"
+)
+@ActiveProfiles(DEV)
+@EnabledForJreRange(min = JAVA_19, max = JAVA_20)
+@SuppressWarnings("WriteTag")
+class VereinQueryCountTest {
+    // z.B. Vereine und ggf. ein weiteres SELECT fuer Assoziationen, aber nie eines je Verein
+    private static final int MAX_STATEMENTS = 2;
+    private static final String ID_VORHANDEN = "00000000-0000-0000-0000-000000000001";
+    private static final String ID_NICHT_IM_CACHE = "00000000-0000-0000-0000-000000000000";
+
+    private final WebClient client;
+
+    VereinQueryCountTest(@LocalServerPort final int port) {
+        client = WebClient.builder()
+            .baseUrl("http://localhost:" + port)
+            .build();
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        SqlStatementCounter.reset();
+    }
+
+    @ParameterizedTest(name = "[{index}] GET {0}")
+    @ValueSource(strings = {
+        REST_PATH + "?limit=100",
+        REST_PATH + "?limit=100&sort=name",
+        REST_PATH + "?name=a",
+        REST_PATH + "?name=a&plz=1",
+        REST_PATH + "?email=alpha",
+        REST_PATH + "?umsatzMin=0",
+        REST_PATH + "?fussballvereinId=30000000-0000-0000-0000-000000000001"
+    })
+    @DisplayName("Listen mit HAL")
+    void find(final String uri) {
+        // when
+        final var statusCode = client.get()
+            .uri(uri)
+            .accept(HAL_JSON)
+            .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+            .block();
+
+        // then
+        assertThat(statusCode).isEqualTo(OK);
+        assertThat(SqlStatementCounter.statements()).hasSizeLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    @Test
+    @DisplayName("Bedingter GET-Request mit aktueller Version liest nur die Versionsnummer")
+    void findByIdNichtModifiziert() {
+        // when
+        final var statusCode = client.get()
+            .uri(REST_PATH + "/" + ID_VORHANDEN)
+            .accept(HAL_JSON)
+            .ifNoneMatch("\"0\"")
+            .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+            .block();
+
+        // then
+        assertThat(statusCode).isEqualTo(NOT_MODIFIED);
+        assertThat(SqlStatementCounter.statements())
+            .hasSize(1)
+            .allSatisfy(sql -> assertThat(sql).doesNotContainIgnoringCase("adresse"));
+    }
+
+    @Test
+    @DisplayName("Suche mit ID ohne Eintrag im Cache liest die Versionsnummer nicht zusaetzlich")
+    void findByIdOhneCache() {
+        // when
+        final var body = client.get()
+            .uri(REST_PATH + "/" + ID_NICHT_IM_CACHE)
+            .accept(HAL_JSON)
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+
+        // then
+        assertThat(body).contains("\"_links\"");
+        // evtl. aus dem 2nd-Level-Cache ohne SQL-Anweisung
+        assertThat(SqlStatementCounter.statements()).hasSizeLessThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Wiederholte Suche mit ID liefert die HAL-Darstellung aus dem Cache")
+    void findByIdAusDemCache() {
+        // given
+        final var erster = client.get()
+            .uri(REST_PATH + "/" + ID_VORHANDEN)
+            .accept(HAL_JSON)
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+        SqlStatementCounter.reset();
+
+        // when
+        final var zweiter = client.get()
+            .uri(REST_PATH + "/" + ID_VORHANDEN)
+            .accept(HAL_JSON)
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+
+        // then
+        assertThat(erster).contains("\"_links\"");
+        assertThat(zweiter).isEqualTo(erster);
+        assertThat(SqlStatementCounter.statements())
+            .hasSize(1)
+            .allSatisfy(sql -> assertThat(sql).doesNotContainIgnoringCase("adresse"));
+    }
+
+    @Test
+    @DisplayName("Export als NDJSON")
+    void export() {
+        // when
+        final var body = client.get()
+            .uri(REST_PATH + EXPORT_PATH)
+            .accept(APPLICATION_NDJSON)
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+
+        // then
+        assertThat(body).isNotBlank();
+        assertThat(SqlStatementCounter.statements()).hasSizeLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    @ParameterizedTest(name = "[{index}] vereine(input: '{' {0}: \"{1}\" '}')")
+    @CsvSource({
+        "name,lph,\\.id in",
+        "email,alpha,email_normalized like",
+        "plz,1,plz like",
+        "ort,Aug,ort like",
+        "gruendungsdatumVon,2022-01-01,gruendungsdatum",
+        "gruendungsdatumBis,2022-12-31,gruendungsdatum",
+        "umsatzMin,0,betrag",
+        "umsatzMax,1000,betrag",
+        "fussballvereinId,30000000-0000-0000-0000-000000000001,fussballverein_id"
+    })
+    @DisplayName("GraphQL-Query mit Suchkriterium wird zu einer WHERE-Klausel")
+    void graphQLSuchkriterium(final String suchkriterium, final String wert, final String praedikat) {
+        // given
+        final var query = Map.of(
+            "query",
+            "{ vereine(input: { " + suchkriterium + ": \"" + wert + "\" }) { name } }"
+        );
+
+        // when
+        final var body = client.post()
+            .uri("/graphql")
+            .contentType(APPLICATION_JSON)
+            .bodyValue(query)
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+
+        // then
+        assertThat(body)
+            .contains("\"name\"")
+            .doesNotContain("\"errors\"");
+        assertThat(SqlStatementCounter.statements())
+            .hasSizeLessThanOrEqualTo(MAX_STATEMENTS)
+            .anySatisfy(sql -> assertThat(sql.toLowerCase(Locale.ROOT)).containsPattern(" where .*" + praedikat));
+    }
+
+    @Test
+    @DisplayName("GraphQL-Query mit dem Umsatz aller Vereine")
+    void graphQL() {
+        // given
+        final var query = Map.of("query", "{ vereine { name umsatz { betrag waehrung } } }");
+
+        // when
+        final var body = client.post()
+            .uri("/graphql")
+            .contentType(APPLICATION_JSON)
+            .bodyValue(query)
+            .retrieve()
+            .bodyToMono(String.class)
+            .block();
+
+        // then
+        assertThat(body).contains("betrag");
+        assertThat(SqlStatementCounter.statements()).hasSizeLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+}
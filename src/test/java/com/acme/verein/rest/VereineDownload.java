@@ -17,5 +17,5 @@
 package com.acme.verein.rest;
 
 @SuppressWarnings({"WriteTag", "RecordComponentName"})
-record VereineDownload(VereinDownloadList _embedded) {
+record VereineDownload(VereinDownloadList _embedded, Links _links) {
 }
@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.repository.VereinName;
+import com.acme.verein.repository.VereinRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Tag("service_read")
+@DisplayName("Teilstring-Suche ueber den Trigramm-Index der Vereinsnamen")
+@SuppressWarnings("WriteTag")
+class VereinNameIndexBenchmarkTest {
+    private static final int ANZAHL_VEREINE = 1_000_000;
+    private static final int WIEDERHOLUNGEN = 20;
+    private static final List<String> PRAEFIXE = List.of("FC", "SV", "TSV", "VfB", "SC", "SpVgg", "TuS", "DJK");
+    private static final List<String> WOERTER = List.of(
+        "Eintracht", "Borussia", "Fortuna", "Alemannia", "Germania", "Concordia", "Viktoria", "Union", "Kickers",
+        "Rot-Weiss", "Blau-Weiss", "Olympia", "Phoenix", "Hertha", "Arminia"
+    );
+    private static final List<String> ORTE = List.of(
+        "Karlsruhe", "Stuttgart", "Mannheim", "Freiburg", "Heidelberg", "Pforzheim", "Ulm", "Konstanz", "Bruchsal",
+        "Rastatt", "Offenburg", "Ettlingen", "Durlach", "Bretten", "Baden-Baden", "Heilbronn"
+    );
+
+    private final Logger log = LoggerFactory.getLogger(VereinNameIndexBenchmarkTest.class);
+
+    // erst beim ersten Benchmark erzeugt, damit die Unit-Tests ohne 1 Mio. Vereine auskommen
+    private List<VereinName> vereine;
+    private VereinNameIndex index;
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Suche nach einem Teilstring unabhaengig von Gross- und Kleinschreibung")
+    void find() {
+        // given
+        final var alpha = new VereinName(UUID.randomUUID(), "FC Alpha Karlsruhe");
+        final var beta = new VereinName(UUID.randomUUID(), "SV Beta Karlsruhe");
+        final var gamma = new VereinName(UUID.randomUUID(), "TSV Gamma Stuttgart");
+        final var index = newIndex(List.of(alpha, beta, gamma));
+
+        // when
+        final var karlsruhe = index.find("KARLS");
+        final var alphaKarlsruhe = index.find("pha karl");
+        final var unbekannt = index.find("Mannheim");
+
+        // then
+        assertThat(karlsruhe).hasValueSatisfying(ids -> assertThat(ids).containsExactly(alpha.id(), beta.id()));
+        assertThat(alphaKarlsruhe).hasValueSatisfying(ids -> assertThat(ids).containsExactly(alpha.id()));
+        assertThat(unbekannt).hasValueSatisfying(ids -> assertThat(ids).isEmpty());
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Suche unabhaengig von Akzenten und \"ss\" statt Eszett wie bei der Collation der DB")
+    void findOhneAkzente() {
+        // given
+        final var muenchen = new VereinName(UUID.randomUUID(), "FC München");
+        final var strasse = new VereinName(UUID.randomUUID(), "SV Große Straße");
+        final var index = newIndex(List.of(muenchen, strasse));
+
+        // when
+        final var ohneUmlaut = index.find("munchen");
+        final var mitUmlaut = index.find("MÜNCHEN");
+        final var ohneEszett = index.find("strasse");
+
+        // then
+        assertThat(ohneUmlaut).hasValueSatisfying(ids -> assertThat(ids).containsExactly(muenchen.id()));
+        assertThat(mitUmlaut).hasValueSatisfying(ids -> assertThat(ids).containsExactly(muenchen.id()));
+        assertThat(ohneEszett).hasValueSatisfying(ids -> assertThat(ids).containsExactly(strasse.id()));
+    }
+
+    @ParameterizedTest(name = "[{index}] Suchbegriff \"{0}\"")
+    @ValueSource(strings = {"", "a", "Ka"})
+    @Tag("unit")
+    @DisplayName("Kurze Suchbegriffe werden nicht ueber den Index gesucht")
+    void findKurz(final String teil) {
+        // given
+        final var index = newIndex(List.of(new VereinName(UUID.randomUUID(), "FC Alpha Karlsruhe")));
+
+        // when
+        final var ids = index.find(teil);
+
+        // then
+        assertThat(ids).isEmpty();
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Vor dem Aufbau wird der Index nicht verwendet")
+    void findVorAufbau() {
+        // given
+        final var index = new VereinNameIndex(mock(VereinRepository.class));
+        index.put(UUID.randomUUID(), "FC Alpha Karlsruhe");
+
+        // when
+        final var ids = index.find("Alpha");
+
+        // then
+        assertThat(ids).isEmpty();
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Neue, geaenderte und geloeschte Vereine")
+    void putRemove() {
+        // given
+        final var alpha = new VereinName(UUID.randomUUID(), "FC Alpha Karlsruhe");
+        final var index = newIndex(List.of(alpha));
+        final var neuId = UUID.randomUUID();
+
+        // when
+        index.put(neuId, "SV Alpha Stuttgart");
+        index.put(alpha.id(), "FC Omega Karlsruhe");
+        final var nachPut = index.find("Alpha");
+        index.remove(neuId);
+        final var nachRemove = index.find("Alpha");
+
+        // then
+        assertThat(nachPut).hasValueSatisfying(ids -> assertThat(ids).containsExactly(neuId));
+        assertThat(nachRemove).hasValueSatisfying(ids -> assertThat(ids).isEmpty());
+        assertThat(index.find("Omega")).hasValueSatisfying(ids -> assertThat(ids).containsExactly(alpha.id()));
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Ein waehrend des Aufbaus geloeschter Verein wird nicht eingetragen")
+    void removeBeimAufbau() {
+        // given
+        final var alpha = new VereinName(UUID.randomUUID(), "FC Alpha Karlsruhe");
+        final var beta = new VereinName(UUID.randomUUID(), "SV Beta Karlsruhe");
+        final var repo = mock(VereinRepository.class);
+        final var index = new VereinNameIndex(repo);
+        // beta wird geloescht, nachdem der Stream gestartet wurde, aber bevor er beta liefert
+        when(repo.streamNamen()).thenAnswer(invocation -> Stream.of(alpha, beta).peek(verein -> {
+            if (verein == alpha) {
+                index.remove(beta.id());
+            }
+        }));
+
+        // when
+        index.aufbauen();
+
+        // then
+        assertThat(index.find("Karlsruhe")).hasValueSatisfying(ids -> assertThat(ids).containsExactly(alpha.id()));
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Nach vielen Aenderungen wird der Index kompaktiert")
+    void kompaktieren() {
+        // given
+        final var id = UUID.randomUUID();
+        final var index = newIndex(List.of(new VereinName(id, "Verein 0")));
+
+        // when
+        IntStream.rangeClosed(1, 100).forEach(i -> index.put(id, "Verein " + i));
+
+        // then
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.find("Verein 100")).hasValueSatisfying(ids -> assertThat(ids).containsExactly(id));
+        assertThat(index.find("Verein 99")).hasValueSatisfying(ids -> assertThat(ids).isEmpty());
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Namen zu einem Praefix alphabetisch unabhaengig von Gross- und Kleinschreibung")
+    void findNamenByPrefix() {
+        // given
+        final var index = newIndex(List.of(
+            new VereinName(UUID.randomUUID(), "SV Beta"),
+            new VereinName(UUID.randomUUID(), "sv alpha"),
+            new VereinName(UUID.randomUUID(), "SV Gamma"),
+            new VereinName(UUID.randomUUID(), "FC Alpha")
+        ));
+
+        // when
+        final var alle = index.findNamenByPrefix("Sv ", 10);
+        final var ersteZwei = index.findNamenByPrefix("sv", 2);
+        final var keine = index.findNamenByPrefix("TSV", 10);
+
+        // then
+        assertThat(alle).hasValueSatisfying(namen -> assertThat(namen)
+            .containsExactly("sv alpha", "SV Beta", "SV Gamma"));
+        assertThat(ersteZwei).hasValueSatisfying(namen -> assertThat(namen).containsExactly("sv alpha", "SV Beta"));
+        assertThat(keine).hasValueSatisfying(namen -> assertThat(namen).isEmpty());
+    }
+
+    @Test
+    @Tag("unit")
+    @DisplayName("Ein mehrfach vorhandener Name bleibt bis zum Austragen des letzten Vereins erhalten")
+    void findNamenByPrefixDuplikate() {
+        // given
+        final var erster = new VereinName(UUID.randomUUID(), "FC Alpha");
+        final var zweiter = new VereinName(UUID.randomUUID(), "FC Alpha");
+        final var index = newIndex(List.of(erster, zweiter));
+
+        // when
+        final var vorRemove = index.findNamenByPrefix("fc", 10);
+        index.remove(erster.id());
+        final var nachErstemRemove = index.findNamenByPrefix("fc", 10);
+        index.put(zweiter.id(), "FC Omega");
+        final var nachPut = index.findNamenByPrefix("fc", 10);
+
+        // then
+        assertThat(vorRemove).hasValueSatisfying(namen -> assertThat(namen).containsExactly("FC Alpha"));
+        assertThat(nachErstemRemove).hasValueSatisfying(namen -> assertThat(namen).containsExactly("FC Alpha"));
+        assertThat(nachPut).hasValueSatisfying(namen -> assertThat(namen).containsExactly("FC Omega"));
+    }
+
+    @ParameterizedTest(name = "[{index}] Suchbegriff \"{0}\"")
+    @ValueSource(strings = {"Karlsruhe 4711", "Phoenix Ulm 12", "tus concordia bretten", "Weiss", "ruhe"})
+    @Tag("perf")
+    @DisplayName("Suche mit Index und durch Vergleich aller Namen bei 1 Mio. Vereinen")
+    void benchmark(final String teil) {
+        // given
+        if (index == null) {
+            vereine = erzeugeVereine();
+            final var start = System.nanoTime();
+            index = newIndex(vereine);
+            log.info("benchmark: Aufbau mit {} Vereinen in {} ms", index.size(),
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+        final var suchbegriff = teil.toLowerCase(Locale.ROOT);
+
+        // when
+        var ids = index.find(teil).orElseThrow();
+        final var startIndex = System.nanoTime();
+        for (var i = 0; i < WIEDERHOLUNGEN; i++) {
+            ids = index.find(teil).orElseThrow();
+        }
+        final var mitIndex = Duration.ofNanos((System.nanoTime() - startIndex) / WIEDERHOLUNGEN);
+
+        var erwartet = scan(vereine, suchbegriff);
+        final var startScan = System.nanoTime();
+        for (var i = 0; i < WIEDERHOLUNGEN; i++) {
+            erwartet = scan(vereine, suchbegriff);
+        }
+        final var ohneIndex = Duration.ofNanos((System.nanoTime() - startScan) / WIEDERHOLUNGEN);
+
+        // then
+        log.info("benchmark: teil=\"{}\", treffer={}, mitIndex={} us, ohneIndex={} us", teil, ids.size(),
+            mitIndex.toNanos() / 1_000, ohneIndex.toNanos() / 1_000);
+        assertThat(ids).containsExactlyElementsOf(erwartet);
+    }
+
+    private static VereinNameIndex newIndex(final List<VereinName> vereine) {
+        final var repo = mock(VereinRepository.class);
+        when(repo.streamNamen()).thenAnswer(invocation -> vereine.stream());
+        final var index = new VereinNameIndex(repo);
+        index.aufbauen();
+        return index;
+    }
+
+    private static List<VereinName> erzeugeVereine() {
+        final var random = new Random(ANZAHL_VEREINE);
+        return IntStream.range(0, ANZAHL_VEREINE)
+            .mapToObj(i -> new VereinName(
+                new UUID(random.nextLong(), random.nextLong()),
+                PRAEFIXE.get(random.nextInt(PRAEFIXE.size())) + ' '
+                    + WOERTER.get(random.nextInt(WOERTER.size())) + ' '
+                    + ORTE.get(random.nextInt(ORTE.size())) + ' ' + i
+            ))
+            .toList();
+    }
+
+    private static List<UUID> scan(final List<VereinName> vereine, final String suchbegriff) {
+        return vereine.stream()
+            .filter(verein -> verein.name().toLowerCase(Locale.ROOT).contains(suchbegriff))
+            .map(VereinName::id)
+            .toList();
+    }
+}
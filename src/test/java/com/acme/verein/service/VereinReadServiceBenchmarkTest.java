@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.repository.FussballvereinCache;
+import com.acme.verein.repository.FussballvereinProps;
+import com.acme.verein.repository.FussballvereinRepository;
+import com.acme.verein.repository.SpecBuilder;
+import com.acme.verein.repository.VereinProjection;
+import com.acme.verein.repository.VereinRepository;
+import com.acme.verein.stub.FussballvereinStub;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.graphql.client.HttpGraphQlClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import static com.acme.verein.service.VereinReadService.MAX_LIMIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Tag("unit")
+@Tag("service_read")
+@DisplayName("Latenz und Anzahl der Requests beim Anreichern mit Fussballvereindaten")
+@SuppressWarnings("WriteTag")
+class VereinReadServiceBenchmarkTest {
+    private static final int ANZAHL_FUSSBALLVEREINE = 10;
+    private static final Duration LATENZ = Duration.ofMillis(20);
+    private static final int ANZAHL_AUFRUFER = 20;
+    private static final String FUSSBALLVEREIN = "fussballverein";
+
+    private final Logger log = LoggerFactory.getLogger(VereinReadServiceBenchmarkTest.class);
+    private final List<UUID> fussballvereinIds = IntStream.range(0, ANZAHL_FUSSBALLVEREINE)
+        .mapToObj(i -> UUID.randomUUID())
+        .toList();
+    private FussballvereinStub stub;
+    private HttpGraphQlClient graphQlClient;
+
+    @BeforeAll
+    void beforeAll() throws IOException {
+        stub = new FussballvereinStub(Set.copyOf(fussballvereinIds), LATENZ);
+        final var baseUrl = "http://localhost:" + stub.getPort();
+        graphQlClient = HttpGraphQlClient
+            .builder(WebClient.builder().baseUrl(baseUrl + "/graphql").build())
+            .build();
+    }
+
+    @AfterAll
+    void afterAll() {
+        stub.close();
+    }
+
+    @ParameterizedTest(name = "[{index}] findSeite mit {0} Vereinen")
+    @ValueSource(ints = {10, 50, MAX_LIMIT})
+    @DisplayName("findSeite fragt alle Fussballverein-IDs mit einem GraphQL-Request an")
+    void findSeite(final int anzahlVereine) {
+        // given
+        final var vereine = IntStream.range(0, anzahlVereine)
+            .mapToObj(i -> new VereinProjection(
+                UUID.randomUUID(),
+                0,
+                "Verein",
+                null,
+                null,
+                null,
+                null,
+                null,
+                fussballvereinIds.get(i % ANZAHL_FUSSBALLVEREINE)
+            ))
+            .collect(Collectors.toList());
+        final var repo = mock(VereinRepository.class);
+        when(repo.findSliceOrderById(any(Pageable.class))).thenReturn(new SliceImpl<>(vereine));
+        final var service = new VereinReadService(
+            repo,
+            newFussballvereinRepository(new SimpleMeterRegistry()),
+            new VereinNameIndex(repo),
+            new SpecBuilder()
+        );
+        stub.reset();
+
+        // when
+        final var start = System.nanoTime();
+        final var result = service.findSeite(Keyset.Sortierung.ID, null, MAX_LIMIT, true).getContent();
+        final var dauer = Duration.ofNanos(System.nanoTime() - start);
+
+        // then
+        log.info("findSeite: {} Vereine in {} ms", anzahlVereine, dauer.toMillis());
+        assertThat(result).hasSize(anzahlVereine);
+        result.forEach(verein -> assertThat(verein.getFussballvereinVereinsname()).startsWith("Verein-"));
+        assertThat(stub.getRestRequests()).isZero();
+        assertThat(stub.getGraphQlRequests()).isEqualTo(1);
+
+        // Fussballvereindaten aus dem Cache
+        service.findSeite(Keyset.Sortierung.ID, null, MAX_LIMIT, true);
+        assertThat(stub.getGraphQlRequests()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Gleichzeitige Suche nach derselben Fussballverein-ID sendet nur einen Request")
+    void findByIdGleichzeitig() {
+        // given
+        final var meterRegistry = new SimpleMeterRegistry();
+        final var fussballvereinRepo = newFussballvereinRepository(meterRegistry);
+        final var fussballvereinId = fussballvereinIds.get(0);
+        stub.reset();
+
+        // when
+        final var fussballvereine = Flux.range(0, ANZAHL_AUFRUFER)
+            .flatMap(i -> fussballvereinRepo.findByIdAsync(fussballvereinId))
+            .collectList()
+            .block();
+
+        // then
+        assertThat(fussballvereine).hasSize(ANZAHL_AUFRUFER);
+        assertThat(stub.getGraphQlRequests()).isEqualTo(1);
+        assertThat(meterRegistry.get("fussballverein.lookups.coalesced").counter().count())
+            .isEqualTo(ANZAHL_AUFRUFER - 1);
+    }
+
+    private FussballvereinRepository newFussballvereinRepository(final MeterRegistry meterRegistry) {
+        final var props = new FussballvereinProps(
+            new FussballvereinProps.Cache(
+                1_000,
+                Duration.ofMinutes(1),
+                Duration.ofSeconds(1),
+                Duration.ofMinutes(10),
+                Duration.ofSeconds(30)
+            ),
+            new FussballvereinProps.Client(
+                Duration.ofSeconds(1),
+                Duration.ofSeconds(2),
+                Duration.ofSeconds(3),
+                32,
+                50,
+                20,
+                Duration.ofSeconds(30)
+            ),
+            new FussballvereinProps.Hedging(false, 0.95, Duration.ofMillis(20), 10)
+        );
+        final var cache = new FussballvereinCache(props, meterRegistry);
+        return new FussballvereinRepository(
+            graphQlClient,
+            cache,
+            props,
+            Bulkhead.ofDefaults(FUSSBALLVEREIN),
+            CircuitBreaker.ofDefaults(FUSSBALLVEREIN),
+            meterRegistry
+        );
+    }
+}
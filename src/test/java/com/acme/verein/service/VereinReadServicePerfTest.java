@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.service;
+
+import com.acme.verein.repository.FussballvereinCache;
+import com.acme.verein.repository.FussballvereinProps;
+import com.acme.verein.repository.FussballvereinRepository;
+import com.acme.verein.repository.SpecBuilder;
+import com.acme.verein.repository.VereinProjection;
+import com.acme.verein.repository.VereinRepository;
+import com.acme.verein.stub.FussballvereinStub;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.graphql.client.HttpGraphQlClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import static com.acme.verein.service.VereinReadService.MAX_LIMIT;
+import static java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Durchsatz und Latenz von findSeite gegen den lokalen Stub für "fussballverein". Aufruf mit
+ * <code>gradle perfTest</code>, die Konfiguration erfolgt über System Properties, siehe build.gradle.kts.
+ */
+@Tag("perf")
+@DisplayName("Durchsatz und Latenz beim Anreichern mit Fussballvereindaten")
+@SuppressWarnings("WriteTag")
+class VereinReadServicePerfTest {
+    private static final int ANZAHL_VEREINE = MAX_LIMIT;
+    private static final String FUSSBALLVEREIN = "fussballverein";
+    private static final double P50 = 0.5;
+    private static final double P90 = 0.9;
+    private static final double P99 = 0.99;
+
+    private final Logger log = LoggerFactory.getLogger(VereinReadServicePerfTest.class);
+    private final Duration dauer = DurationStyle.detectAndParse(System.getProperty("fussballverein.perf.dauer", "10s"));
+    private final int anzahlAufrufer = Integer.getInteger("fussballverein.perf.aufrufer", 64);
+    private FussballvereinStub stub;
+    private List<UUID> fussballvereinIds;
+    private VereinReadService service;
+
+    @BeforeAll
+    void beforeAll() throws IOException {
+        stub = FussballvereinStub.fromSystemProperties();
+        final var anzahl = Integer.getInteger("fussballverein.stub.anzahl", 1_000);
+        fussballvereinIds = new ArrayList<>(FussballvereinStub.ids(anzahl));
+
+        // wie ClientConfig.uriComponentsBuilder: KUNDE_SERVICE_HOST und KUNDE_SERVICE_PORT
+        final var hostEnv = System.getenv("KUNDE_SERVICE_HOST");
+        final var host = hostEnv == null ? "localhost" : hostEnv;
+        final var portEnv = System.getenv("KUNDE_SERVICE_PORT");
+        final var port = portEnv == null ? stub.getPort() : Integer.parseInt(portEnv);
+        log.info("beforeAll: fussballverein unter {}:{}", host, port);
+        final var graphQlClient = HttpGraphQlClient
+            .builder(WebClient.builder().baseUrl("http://%s:%d/graphql".formatted(host, port)).build())
+            .build();
+
+        // ohne Cache, damit jeder Aufruf remote sucht
+        final var props = new FussballvereinProps(
+            new FussballvereinProps.Cache(1, Duration.ofNanos(1), Duration.ofNanos(1), Duration.ZERO, Duration.ZERO),
+            new FussballvereinProps.Client(
+                Duration.ofSeconds(1),
+                Duration.ofSeconds(2),
+                Duration.ofSeconds(3),
+                anzahlAufrufer,
+                50,
+                20,
+                Duration.ofSeconds(30)
+            ),
+            new FussballvereinProps.Hedging(
+                Boolean.getBoolean("fussballverein.perf.hedging"),
+                0.95,
+                Duration.ofMillis(20),
+                10
+            )
+        );
+        final var meterRegistry = new SimpleMeterRegistry();
+        final var fussballvereinRepo = new FussballvereinRepository(
+            graphQlClient,
+            new FussballvereinCache(props, meterRegistry),
+            props,
+            Bulkhead.ofDefaults(FUSSBALLVEREIN),
+            CircuitBreaker.ofDefaults(FUSSBALLVEREIN),
+            meterRegistry
+        );
+
+        // stubOnly: Mockito speichert die vielen Aufrufe nicht
+        final var repo = mock(VereinRepository.class, withSettings().stubOnly());
+        when(repo.findSliceOrderById(any(Pageable.class))).thenAnswer(invocation -> new SliceImpl<>(vereine()));
+        service = new VereinReadService(
+            repo,
+            fussballvereinRepo,
+            new VereinNameIndex(repo),
+            new SpecBuilder()
+        );
+    }
+
+    @AfterAll
+    void afterAll() {
+        stub.close();
+    }
+
+    @Test
+    @DisplayName("findSeite mit nebenlaeufigen Aufrufern")
+    void findSeite() throws InterruptedException {
+        // given
+        final var latenzen = new ConcurrentLinkedQueue<Long>();
+        final var ende = System.nanoTime() + dauer.toNanos();
+        stub.reset();
+
+        // when
+        try (var executor = newVirtualThreadPerTaskExecutor()) {
+            IntStream.range(0, anzahlAufrufer).forEach(i -> executor.submit(() -> {
+                while (System.nanoTime() < ende) {
+                    final var start = System.nanoTime();
+                    service.findSeite(Keyset.Sortierung.ID, null, MAX_LIMIT, true);
+                    latenzen.add(System.nanoTime() - start);
+                }
+            }));
+        }
+
+        // then
+        final var sortiert = latenzen.stream().mapToLong(Long::longValue).sorted().toArray();
+        assertThat(sortiert).isNotEmpty();
+        log.info(
+            "findSeite: {} Aufrufer, {} Aufrufe/s, p50={} ms, p90={} ms, p99={} ms, {} GraphQL-Requests, {} Fehler",
+            anzahlAufrufer,
+            sortiert.length * 1_000L / dauer.toMillis(),
+            perzentil(sortiert, P50),
+            perzentil(sortiert, P90),
+            perzentil(sortiert, P99),
+            stub.getGraphQlRequests(),
+            stub.getErrors()
+        );
+    }
+
+    private List<VereinProjection> vereine() {
+        final var random = ThreadLocalRandom.current();
+        return IntStream.range(0, ANZAHL_VEREINE)
+            .mapToObj(i -> new VereinProjection(
+                UUID.randomUUID(),
+                0,
+                "Verein",
+                null,
+                null,
+                null,
+                null,
+                null,
+                fussballvereinIds.get(random.nextInt(fussballvereinIds.size()))
+            ))
+            .collect(Collectors.toList());
+    }
+
+    private static long perzentil(final long[] sortiert, final double p) {
+        final var index = (int) Math.ceil(p * sortiert.length) - 1;
+        return Duration.ofNanos(sortiert[Math.max(0, index)]).toMillis();
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.stub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.slf4j.LoggerFactory;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor;
+
+/**
+ * Lokaler Stub für den Microservice "fussballverein" mit den Schnittstellen <code>/rest/{id}</code> und
+ * <code>/graphql</code>, um Latenzen ohne den echten Service messen zu können. Antwortzeiten, Fehlerrate und Anzahl
+ * der Fussballvereine sind konfigurierbar, siehe {@link #fromSystemProperties()}.
+ */
+@SuppressWarnings("WriteTag")
+public final class FussballvereinStub implements AutoCloseable {
+    private static final String REST_PATH = "/rest/";
+    private static final String GRAPHQL_PATH = "/graphql";
+    private static final String VARIABLE_PREFIX = "id";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int STATUS_ERROR = 500;
+
+    private final HttpServer server;
+    private final Set<UUID> ids;
+    private final Latenz latenz;
+    private final double fehlerrate;
+    private final AtomicInteger restRequests = new AtomicInteger();
+    private final AtomicInteger graphQlRequests = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    /**
+     * Stub auf einem freien Port starten.
+     *
+     * @param ids Die IDs der vorhandenen Fussballvereine
+     * @param latency Die Antwortzeit je Request
+     * @throws IOException falls der Server nicht gestartet werden kann
+     */
+    public FussballvereinStub(final Set<UUID> ids, final Duration latency) throws IOException {
+        this(ids, Latenz.fest(latency), 0, 0);
+    }
+
+    /**
+     * Stub starten.
+     *
+     * @param ids Die IDs der vorhandenen Fussballvereine
+     * @param latenz Die Verteilung der Antwortzeiten
+     * @param fehlerrate Anteil der Requests zwischen 0 und 1, die mit Statuscode 500 beantwortet werden
+     * @param port Der Port oder 0 für einen freien Port
+     * @throws IOException falls der Server nicht gestartet werden kann
+     */
+    public FussballvereinStub(final Set<UUID> ids, final Latenz latenz, final double fehlerrate, final int port)
+        throws IOException {
+        this.ids = Set.copyOf(ids);
+        this.latenz = latenz;
+        this.fehlerrate = fehlerrate;
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext(REST_PATH, this::handleRest);
+        server.createContext(GRAPHQL_PATH, this::handleGraphQl);
+        server.setExecutor(newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    /**
+     * Stub mit den System Properties <code>fussballverein.stub.port</code> (Default: 0),
+     * <code>fussballverein.stub.anzahl</code> (Default: 1000), <code>fussballverein.stub.latenz</code> (Default:
+     * <code>lognormal:20ms:0.5</code>, siehe {@link Latenz#parse(String)}) und
+     * <code>fussballverein.stub.fehlerrate</code> (Default: 0) starten.
+     *
+     * @return Der gestartete Stub
+     * @throws IOException falls der Server nicht gestartet werden kann
+     */
+    @SuppressWarnings("MagicNumber")
+    public static FussballvereinStub fromSystemProperties() throws IOException {
+        return new FussballvereinStub(
+            ids(Integer.getInteger("fussballverein.stub.anzahl", 1_000)),
+            Latenz.parse(System.getProperty("fussballverein.stub.latenz", "lognormal:20ms:0.5")),
+            Double.parseDouble(System.getProperty("fussballverein.stub.fehlerrate", "0")),
+            Integer.getInteger("fussballverein.stub.port", 0)
+        );
+    }
+
+    /**
+     * Reproduzierbare IDs für einen Datenbestand erzeugen.
+     *
+     * @param anzahl Anzahl der Fussballvereine
+     * @return Die IDs
+     */
+    public static Set<UUID> ids(final int anzahl) {
+        return IntStream.range(0, anzahl)
+            .mapToObj(i -> UUID.nameUUIDFromBytes(("fussballverein-" + i).getBytes(UTF_8)))
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Stub als eigenständigen Prozess starten, z.B. für Lasttests mit <code>bootRun</code> und den
+     * Umgebungsvariablen <code>KUNDE_SERVICE_HOST</code> und <code>KUNDE_SERVICE_PORT</code>.
+     *
+     * @param args nicht verwendet
+     * @throws IOException falls der Server nicht gestartet werden kann
+     */
+    public static void main(final String... args) throws IOException {
+        final var stub = fromSystemProperties();
+        final var log = LoggerFactory.getLogger(FussballvereinStub.class);
+        log.info("FussballvereinStub: Port {}, {} IDs", stub.getPort(), stub.ids.size());
+    }
+
+    /**
+     * Der Port, an dem der Stub lauscht.
+     *
+     * @return Der Port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Anzahl der bisher empfangenen REST-Requests.
+     *
+     * @return Anzahl der REST-Requests
+     */
+    public int getRestRequests() {
+        return restRequests.get();
+    }
+
+    /**
+     * Anzahl der bisher empfangenen GraphQL-Requests.
+     *
+     * @return Anzahl der GraphQL-Requests
+     */
+    public int getGraphQlRequests() {
+        return graphQlRequests.get();
+    }
+
+    /**
+     * Anzahl der bisher mit Statuscode 500 beantworteten Requests.
+     *
+     * @return Anzahl der fehlerhaften Requests
+     */
+    public int getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Zähler für die empfangenen Requests zurücksetzen.
+     */
+    public void reset() {
+        restRequests.set(0);
+        graphQlRequests.set(0);
+        errors.set(0);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handleRest(final HttpExchange exchange) throws IOException {
+        restRequests.incrementAndGet();
+        pause();
+        if (fail(exchange)) {
+            return;
+        }
+        final var id = UUID.fromString(exchange.getRequestURI().getPath().substring(REST_PATH.length()));
+        if (!ids.contains(id)) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        send(exchange, """
+            {"vereinsname":"%s","email":"%s"}""".formatted(vereinsname(id), email(id)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handleGraphQl(final HttpExchange exchange) throws IOException {
+        graphQlRequests.incrementAndGet();
+        pause();
+        if (fail(exchange)) {
+            return;
+        }
+        // Aliase f0, f1, ... mit den Variablen id0, id1, ... wie in FussballvereinRepository
+        final var request = MAPPER.readValue(exchange.getRequestBody(), Map.class);
+        final var variables = (Map<String, String>) request.getOrDefault("variables", Map.of());
+        final Map<String, Object> data = new LinkedHashMap<>();
+        final List<Map<String, Object>> errors = new ArrayList<>();
+        variables.forEach((variable, idStr) -> {
+            final var alias = "f" + variable.substring(VARIABLE_PREFIX.length());
+            final var id = UUID.fromString(idStr);
+            if (ids.contains(id)) {
+                data.put(alias, Map.of("vereinsname", vereinsname(id), "email", email(id)));
+            } else {
+                data.put(alias, null);
+                // wie Spring for GraphQL mit ErrorType.NOT_FOUND
+                errors.add(Map.of(
+                    "message", "Nicht gefunden",
+                    "path", List.of(alias),
+                    "extensions", Map.of("classification", "NOT_FOUND")
+                ));
+            }
+        });
+        final Map<String, Object> response = new LinkedHashMap<>();
+        response.put("data", data);
+        if (!errors.isEmpty()) {
+            response.put("errors", errors);
+        }
+        send(exchange, MAPPER.writeValueAsString(response));
+    }
+
+    private boolean fail(final HttpExchange exchange) throws IOException {
+        if (fehlerrate <= 0 || ThreadLocalRandom.current().nextDouble() >= fehlerrate) {
+            return false;
+        }
+        errors.incrementAndGet();
+        exchange.sendResponseHeaders(STATUS_ERROR, -1);
+        exchange.close();
+        return true;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(latenz.next());
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void send(final HttpExchange exchange, final String json) throws IOException {
+        final var bytes = json.getBytes(UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Der Vereinsname, den der Stub für eine vorhandene ID liefert.
+     *
+     * @param id Die ID des Fussballvereins
+     * @return Der Vereinsname
+     */
+    public static String vereinsname(final UUID id) {
+        return "Verein-" + id.toString().substring(0, 8);
+    }
+
+    /**
+     * Die Emailadresse, die der Stub für eine vorhandene ID liefert.
+     *
+     * @param id Die ID des Fussballvereins
+     * @return Die Emailadresse
+     */
+    public static String email(final UUID id) {
+        return id.toString().substring(0, 8) + "@acme.de";
+    }
+}
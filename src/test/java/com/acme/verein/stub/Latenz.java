@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.acme.verein.stub;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * Verteilung der Antwortzeiten von {@link FussballvereinStub}.
+ */
+@FunctionalInterface
+@SuppressWarnings("WriteTag")
+public interface Latenz {
+    /**
+     * Die Antwortzeit für den nächsten Request ermitteln.
+     *
+     * @return Die Antwortzeit
+     */
+    Duration next();
+
+    /**
+     * Immer dieselbe Antwortzeit.
+     *
+     * @param dauer Die Antwortzeit
+     * @return Feste Latenz
+     */
+    static Latenz fest(final Duration dauer) {
+        return () -> dauer;
+    }
+
+    /**
+     * Gleichverteilte Antwortzeiten.
+     *
+     * @param min Minimale Antwortzeit
+     * @param max Maximale Antwortzeit
+     * @return Gleichverteilte Latenz
+     */
+    static Latenz gleichverteilt(final Duration min, final Duration max) {
+        return () -> Duration.ofNanos(ThreadLocalRandom.current().nextLong(min.toNanos(), max.toNanos() + 1));
+    }
+
+    /**
+     * Log-normalverteilte Antwortzeiten, wie sie für Netzwerk-Latenzen typisch sind.
+     *
+     * @param median Median der Antwortzeiten
+     * @param sigma Standardabweichung des Logarithmus, z.B. 0.5
+     * @return Log-normalverteilte Latenz
+     */
+    static Latenz lognormal(final Duration median, final double sigma) {
+        return () -> Duration.ofNanos(
+            (long) (median.toNanos() * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()))
+        );
+    }
+
+    /**
+     * Antwortzeiten mit gelegentlichen Ausreißern.
+     *
+     * @param normal Verteilung der normalen Antwortzeiten
+     * @param anteil Anteil der Ausreißer zwischen 0 und 1
+     * @param ausreisser Antwortzeit eines Ausreißers
+     * @return Latenz mit Ausreißern
+     */
+    static Latenz mitAusreissern(final Latenz normal, final double anteil, final Duration ausreisser) {
+        return () -> ThreadLocalRandom.current().nextDouble() < anteil ? ausreisser : normal.next();
+    }
+
+    /**
+     * Eine Latenz aus einem String wie <code>fest:20ms</code>, <code>gleich:10ms:50ms</code>,
+     * <code>lognormal:20ms:0.5</code> oder <code>ausreisser:20ms:0.01:1s</code> erzeugen.
+     *
+     * @param spec Die Beschreibung der Latenz
+     * @return Die passende Latenz
+     * @throws IllegalArgumentException falls die Beschreibung ungültig ist
+     */
+    @SuppressWarnings("MagicNumber")
+    static Latenz parse(final String spec) {
+        final var teile = spec.split(":");
+        return switch (teile[0]) {
+            case "fest" -> fest(DurationStyle.detectAndParse(teile[1]));
+            case "gleich" -> gleichverteilt(
+                DurationStyle.detectAndParse(teile[1]),
+                DurationStyle.detectAndParse(teile[2])
+            );
+            case "lognormal" -> lognormal(DurationStyle.detectAndParse(teile[1]), Double.parseDouble(teile[2]));
+            case "ausreisser" -> mitAusreissern(
+                fest(DurationStyle.detectAndParse(teile[1])),
+                Double.parseDouble(teile[2]),
+                DurationStyle.detectAndParse(teile[3])
+            );
+            default -> throw new IllegalArgumentException("Ungueltige Latenz: " + spec);
+        };
+    }
+}